@@ -1,8 +1,12 @@
+import engine.FixedStepClock;
 import game.AbstractLocalGame;
+import game.GameEventHandler;
+import game.GameSettings;
 import game.map.BouncyBalls;
 import game.map.Spin;
 import javafx.application.Application;
 import netcode.GameServer;
+import netcode.packets.Serializer;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -42,9 +46,110 @@ public class Main {
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
+            } else if (command.equals("benchmark")) {
+                try {
+                    benchmarkCollisionCache(new File(args[1]), Double.parseDouble(args[2]));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            } else if (command.equals("simulate")) {
+                try {
+                    simulateMatch(new File(args[1]), Double.parseDouble(args[2]));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
             }
         } else {
             Application.launch(App.class);
         }
     }
+
+    /**
+     * Measures how much time the collision cache saves when bots play a map
+     * @param gameMap the map to play
+     * @param seconds the length of each run in game seconds
+     * @throws Exception
+     */
+    private static void benchmarkCollisionCache(File gameMap, double seconds) throws Exception {
+        GameSettings.SOUND_EFFECTS_ON = false;
+        long steps = (long) (seconds * 1000);
+        long[] bestNanos = {Long.MAX_VALUE, Long.MAX_VALUE};
+        double hitRate = 0;
+
+        // Alternate the configurations a few times so that both get a warmed up JIT
+        for (int round = 0; round < 3; round++) {
+            for (int config = 0; config < 2; config++) {
+                AbstractLocalGame game = Serializer.readGameMapFromFile(gameMap);
+                game.setRandomSeed(0);
+                game.setCollisionCacheEnabled(config == 1);
+                for (int i = 0; i < game.getPlayers().length; i++) {
+                    game.activatePlayer(i, true);
+                }
+
+                FixedStepClock clock = new FixedStepClock(1_000_000);
+                long start = System.nanoTime();
+                for (long step = 0; step < steps; step++) {
+                    game.simulate(clock, 1);
+                }
+                bestNanos[config] = Math.min(bestNanos[config], System.nanoTime() - start);
+                if (config == 1) {
+                    hitRate = game.getCollisionCache().getHitRate();
+                }
+            }
+        }
+
+        System.out.printf("Without collision cache: %.3f s%n", bestNanos[0] / 1000000000.0);
+        System.out.printf("With collision cache:    %.3f s%n", bestNanos[1] / 1000000000.0);
+        System.out.printf("Cache hit rate: %.1f%%%n", hitRate * 100);
+        System.out.printf("Time saved: %.1f%%%n", 100.0 * (bestNanos[0] - bestNanos[1]) / bestNanos[0]);
+    }
+
+    /**
+     * Plays a map headlessly between four automated players as fast as possible
+     * @param gameMap the map to play
+     * @param maxSeconds the longest match to simulate in game seconds
+     * @throws Exception
+     */
+    private static void simulateMatch(File gameMap, double maxSeconds) throws Exception {
+        GameSettings.SOUND_EFFECTS_ON = false;
+        AbstractLocalGame game = Serializer.readGameMapFromFile(gameMap);
+        int[] winner = {-1};
+        game.setGameEventHandler(new GameEventHandler() {
+            @Override
+            public void onWinnerDetermined(int winningPlayer) {
+                winner[0] = winningPlayer;
+            }
+
+            @Override
+            public void onPlayerElimination(int eliminatedPlayer) {
+                System.out.printf("Player %d has been eliminated!%n", eliminatedPlayer + 1);
+            }
+
+            @Override
+            public void onLifeChange(int[] newLives, boolean[] activePlayers) {
+
+            }
+        });
+        for (int i = 0; i < game.getPlayers().length; i++) {
+            game.activatePlayer(i, true);
+        }
+
+        // Step the game at 1 ms of game time per update
+        FixedStepClock clock = new FixedStepClock(1_000_000);
+        long maxSteps = (long) (maxSeconds * 1000);
+        long steps = 0;
+        long start = System.nanoTime();
+        while (steps < maxSteps && winner[0] == -1) {
+            game.simulate(clock, 1);
+            steps++;
+        }
+        double wallSeconds = (System.nanoTime() - start) / 1000000000.0;
+
+        if (winner[0] != -1) {
+            System.out.printf("The Winner is Player %d!%n", winner[0] + 1);
+        } else {
+            System.out.println("No winner was determined.");
+        }
+        System.out.printf("Simulated %.1f s of game time in %.3f s%n", steps / 1000.0, wallSeconds);
+    }
 }
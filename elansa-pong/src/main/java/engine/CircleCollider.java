@@ -23,10 +23,68 @@ public class CircleCollider implements Collider {
         } else if (other instanceof RectangleCollider) {
             RectangleCollider otherRect = (RectangleCollider) other;
             return otherRect.collide(this);
+        } else if (other instanceof ConvexPolygonCollider) {
+            return other.collide(this);
         }
         return false;
     }
 
+    @Override
+    public void project(double axisX, double axisY, double[] interval) {
+        double centerProjection = center.getX() * axisX + center.getY() * axisY;
+        interval[0] = centerProjection - radius;
+        interval[1] = centerProjection + radius;
+    }
+
+    @Override
+    public int getNormalCount() {
+        return 0;
+    }
+
+    @Override
+    public void getNormal(int index, double[] normal) {
+        throw new IndexOutOfBoundsException("A circle has no edge normals");
+    }
+
+    @Override
+    public Vec2d findClosestPoint(Vec2d point) {
+        Vec2d displacement = point.sub(center);
+        double distance = displacement.mag();
+        if (distance <= radius) {
+            return point;
+        }
+        return center.add(displacement.scale(radius / distance));
+    }
+
+    @Override
+    public void computeBounds(double[] bounds) {
+        bounds[0] = center.getX() - radius;
+        bounds[1] = center.getY() - radius;
+        bounds[2] = center.getX() + radius;
+        bounds[3] = center.getY() + radius;
+    }
+
+    @Override
+    public double raycast(double originX, double originY, double dirX, double dirY, double maxDistance) {
+        // Solve |origin + t*dir - center| = radius for the smallest t
+        double offsetX = originX - center.getX();
+        double offsetY = originY - center.getY();
+        double b = offsetX * dirX + offsetY * dirY;
+        double c = offsetX * offsetX + offsetY * offsetY - radius * radius;
+        if (c <= 0) {
+            return 0;
+        }
+        double discriminant = b * b - c;
+        if (discriminant < 0) {
+            return -1;
+        }
+        double t = -b - Math.sqrt(discriminant);
+        if (t < 0 || t > maxDistance) {
+            return -1;
+        }
+        return t;
+    }
+
     @Override
     public Vec2d getPosition() {
         return center;
@@ -10,6 +10,52 @@ public interface Collider extends Serializable {
      */
     boolean collide(Collider other);
 
+    /**
+     * Computes the smallest axis-aligned box containing the Collider
+     * @param bounds an array of length 4 that receives the minimum x, minimum y, maximum x and maximum y
+     */
+    void computeBounds(double[] bounds);
+
+    /**
+     * Finds the first point at which a ray meets the Collider
+     * @param originX the x coordinate of the ray's origin
+     * @param originY the y coordinate of the ray's origin
+     * @param dirX the x component of the ray's unit direction
+     * @param dirY the y component of the ray's unit direction
+     * @param maxDistance the farthest distance along the ray to consider
+     * @return the distance along the ray to the first intersection or -1 if the ray misses.
+     * A ray starting inside the Collider hits at distance 0.
+     */
+    double raycast(double originX, double originY, double dirX, double dirY, double maxDistance);
+
+    /**
+     * Projects the Collider onto an axis
+     * @param axisX the x component of the unit axis
+     * @param axisY the y component of the unit axis
+     * @param interval an array of length 2 that receives the smallest and largest projection
+     */
+    void project(double axisX, double axisY, double[] interval);
+
+    /**
+     * Gets the number of distinct edge normals of the Collider
+     * @return the number of edge normals where curved shapes have none
+     */
+    int getNormalCount();
+
+    /**
+     * Gets an edge normal of the Collider
+     * @param index the index of the normal in [0, getNormalCount())
+     * @param normal an array of length 2 that receives the unit normal
+     */
+    void getNormal(int index, double[] normal);
+
+    /**
+     * Finds the closest point on the Collider to a given point
+     * @param point the point to find the closest point to
+     * @return the closest point to the given point or the point itself if it lies inside the Collider
+     */
+    Vec2d findClosestPoint(Vec2d point);
+
     /**
      * Gets the position of the Collider
      * @return the position of the Collider
@@ -0,0 +1,138 @@
+package engine;
+
+/**
+ * Remembers a separating axis for pairs of colliders between ticks.
+ * Objects rarely move far in one tick so an axis that separated a pair on the
+ * previous tick usually still separates it, which lets the test finish after a
+ * single projection of each collider. The cache is direct-mapped so a slot is
+ * simply overwritten when two pairs hash to it.
+ */
+public class CollisionCache {
+    private static final int CAPACITY = 1024;
+
+    private final Collider[] firstColliders = new Collider[CAPACITY];
+    private final Collider[] secondColliders = new Collider[CAPACITY];
+    private final double[] axes = new double[2 * CAPACITY];
+
+    // Scratch space so that the cache does not allocate
+    private final double[] firstInterval = new double[2];
+    private final double[] secondInterval = new double[2];
+    private final double[] axis = new double[2];
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Determines whether two Colliders intersect, trying the axis that separated them last time first
+     * @param first the first collider
+     * @param second the second collider
+     * @return a boolean that determines if the colliders intersect
+     */
+    public boolean collide(Collider first, Collider second) {
+        int slot = findSlot(first, second);
+        if (firstColliders[slot] == first && secondColliders[slot] == second
+                && separates(first, second, axes[2 * slot], axes[2 * slot + 1])) {
+            hits++;
+            return false;
+        }
+
+        misses++;
+        boolean colliding = first.collide(second);
+        if (!colliding && findSeparatingAxis(first, second)) {
+            firstColliders[slot] = first;
+            secondColliders[slot] = second;
+            axes[2 * slot] = axis[0];
+            axes[2 * slot + 1] = axis[1];
+        } else {
+            firstColliders[slot] = null;
+            secondColliders[slot] = null;
+        }
+        return colliding;
+    }
+
+    /**
+     * Helper method to pick the slot of a collider pair
+     * @return the slot index
+     */
+    private int findSlot(Collider first, Collider second) {
+        int hash = System.identityHashCode(first) * 31 + System.identityHashCode(second);
+        hash ^= hash >>> 16;
+        return hash & (CAPACITY - 1);
+    }
+
+    /**
+     * Helper method to check if an axis separates two colliders
+     * @return true if the projections of the colliders onto the axis do not overlap
+     */
+    private boolean separates(Collider first, Collider second, double axisX, double axisY) {
+        first.project(axisX, axisY, firstInterval);
+        second.project(axisX, axisY, secondInterval);
+        return firstInterval[1] < secondInterval[0] || secondInterval[1] < firstInterval[0];
+    }
+
+    /**
+     * Helper method to search the candidate axes of two disjoint colliders for one that separates them.
+     * The candidates are the edge normals of both colliders and, when a circle is involved, the
+     * direction from the other collider's closest feature to the circle's center.
+     * @return true if a separating axis was found and written into axis
+     */
+    private boolean findSeparatingAxis(Collider first, Collider second) {
+        for (int i = 0; i < first.getNormalCount(); i++) {
+            first.getNormal(i, axis);
+            if (separates(first, second, axis[0], axis[1])) {
+                return true;
+            }
+        }
+        for (int i = 0; i < second.getNormalCount(); i++) {
+            second.getNormal(i, axis);
+            if (separates(first, second, axis[0], axis[1])) {
+                return true;
+            }
+        }
+
+        CircleCollider circle = null;
+        Collider other = null;
+        if (first instanceof CircleCollider) {
+            circle = (CircleCollider) first;
+            other = second;
+        } else if (second instanceof CircleCollider) {
+            circle = (CircleCollider) second;
+            other = first;
+        }
+        if (circle != null) {
+            Vec2d closestFeatureAxis = circle.getCenter().sub(other.findClosestPoint(circle.getCenter()));
+            double length = closestFeatureAxis.mag();
+            if (length > Math.ulp(1.0)) {
+                axis[0] = closestFeatureAxis.getX() / length;
+                axis[1] = closestFeatureAxis.getY() / length;
+                return separates(first, second, axis[0], axis[1]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the fraction of tests that were answered by a cached axis
+     * @return the hit rate in [0, 1]
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Clears the hit and miss counters
+     */
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+}
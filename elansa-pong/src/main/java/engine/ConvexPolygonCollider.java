@@ -0,0 +1,288 @@
+package engine;
+
+public class ConvexPolygonCollider implements Collider {
+    private Vec2d position;
+    private final Vec2d[] offsets;
+    private final Vec2d[] normals;
+
+    /**
+     * Creates a convex polygon collider
+     * @param position the location the vertices are measured relative to
+     * @param offsets the vertices of the polygon relative to position listed in order around the polygon
+     */
+    public ConvexPolygonCollider(Vec2d position, Vec2d[] offsets) {
+        if (offsets.length < 3) {
+            throw new IllegalArgumentException("A polygon requires at least 3 vertices");
+        }
+        this.position = position;
+        this.offsets = offsets.clone();
+
+        // The edge normals do not change under translation so they are computed once
+        Vec2d centroid = new Vec2d(0, 0);
+        for (Vec2d offset : offsets) {
+            centroid = centroid.add(offset);
+        }
+        centroid = centroid.scale(1.0 / offsets.length);
+
+        this.normals = new Vec2d[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            Vec2d start = offsets[i];
+            Vec2d edge = offsets[(i + 1) % offsets.length].sub(start);
+            Vec2d normal = new Vec2d(edge.getY(), -edge.getX()).normalize();
+            // Make sure the normal points away from the polygon
+            if (normal.dot(centroid.sub(start)) > 0) {
+                normal = normal.scale(-1.0);
+            }
+            normals[i] = normal;
+        }
+    }
+
+    /**
+     * Computes the vertices of the polygon in world space
+     * @return a list of the polygon's vertices in the same order they were given
+     */
+    public Vec2d[] computeVertices() {
+        Vec2d[] vertices = new Vec2d[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            vertices[i] = position.add(offsets[i]);
+        }
+        return vertices;
+    }
+
+    /**
+     * Finds the closest point on the polygon to a given point
+     * @param point the point to find the closest point to
+     * @return the closest point to the given point or the point itself if it lies inside the polygon
+     */
+    @Override
+    public Vec2d findClosestPoint(Vec2d point) {
+        Vec2d[] vertices = computeVertices();
+
+        boolean inside = true;
+        for (int i = 0; i < vertices.length; i++) {
+            if (point.sub(vertices[i]).dot(normals[i]) > 0) {
+                inside = false;
+                break;
+            }
+        }
+        if (inside) {
+            return point;
+        }
+
+        // Clamp the point onto every edge and keep the nearest result
+        Vec2d closestPoint = null;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < vertices.length; i++) {
+            Vec2d start = vertices[i];
+            Vec2d edge = vertices[(i + 1) % vertices.length].sub(start);
+            double t = point.sub(start).dot(edge) / edge.dot(edge);
+            t = Math.max(0, Math.min(1, t));
+
+            Vec2d candidate = start.add(edge.scale(t));
+            double distance = candidate.sub(point).mag();
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                closestPoint = candidate;
+            }
+        }
+        return closestPoint;
+    }
+
+    /**
+     * Checks if the projections of two point sets onto an axis overlap
+     * @param axis the axis to project onto
+     * @param a the first point set
+     * @param b the second point set
+     * @return true if the projected intervals overlap
+     */
+    private static boolean overlapOnAxis(Vec2d axis, Vec2d[] a, Vec2d[] b) {
+        double minA = Double.POSITIVE_INFINITY;
+        double maxA = Double.NEGATIVE_INFINITY;
+        for (Vec2d vertex : a) {
+            double projection = vertex.dot(axis);
+            minA = Math.min(minA, projection);
+            maxA = Math.max(maxA, projection);
+        }
+
+        double minB = Double.POSITIVE_INFINITY;
+        double maxB = Double.NEGATIVE_INFINITY;
+        for (Vec2d vertex : b) {
+            double projection = vertex.dot(axis);
+            minB = Math.min(minB, projection);
+            maxB = Math.max(maxB, projection);
+        }
+
+        return minA <= maxB && minB <= maxA;
+    }
+
+    @Override
+    public boolean collide(Collider other) {
+        Vec2d[] thisVertices = computeVertices();
+        if (other instanceof ConvexPolygonCollider) {
+            ConvexPolygonCollider otherPolygon = (ConvexPolygonCollider) other;
+            Vec2d[] otherVertices = otherPolygon.computeVertices();
+
+            // Separating axis theorem: the shapes are disjoint iff some edge normal separates them
+            for (Vec2d axis : this.normals) {
+                if (!overlapOnAxis(axis, thisVertices, otherVertices)) {
+                    return false;
+                }
+            }
+            for (Vec2d axis : otherPolygon.normals) {
+                if (!overlapOnAxis(axis, thisVertices, otherVertices)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (other instanceof RectangleCollider) {
+            RectangleCollider otherRect = (RectangleCollider) other;
+            Vec2d[] otherVerticesAndBasis = otherRect.computeVerticesAndBasis();
+            Vec2d[] otherVertices = new Vec2d[]{
+                    otherVerticesAndBasis[0],
+                    otherVerticesAndBasis[1],
+                    otherVerticesAndBasis[2],
+                    otherVerticesAndBasis[3]
+            };
+
+            // The rectangle's edge normals are its basis vectors
+            for (Vec2d axis : this.normals) {
+                if (!overlapOnAxis(axis, thisVertices, otherVertices)) {
+                    return false;
+                }
+            }
+            return overlapOnAxis(otherVerticesAndBasis[4], thisVertices, otherVertices)
+                    && overlapOnAxis(otherVerticesAndBasis[5], thisVertices, otherVertices);
+        } else if (other instanceof CircleCollider) {
+            CircleCollider otherCircle = (CircleCollider) other;
+            Vec2d center = otherCircle.getCenter();
+            double radius = otherCircle.getRadius();
+
+            // A circle needs the edge normals and the axis through its nearest vertex
+            Vec2d nearestVertex = thisVertices[0];
+            for (Vec2d vertex : thisVertices) {
+                if (vertex.sub(center).mag() < nearestVertex.sub(center).mag()) {
+                    nearestVertex = vertex;
+                }
+            }
+            Vec2d vertexAxis = center.sub(nearestVertex);
+
+            for (int i = 0; i <= normals.length; i++) {
+                Vec2d axis = i < normals.length ? normals[i] : vertexAxis;
+                if (axis.mag() < Math.ulp(1.0)) {
+                    // The center sits on a vertex
+                    return true;
+                }
+                axis = axis.normalize();
+
+                double minPolygon = Double.POSITIVE_INFINITY;
+                double maxPolygon = Double.NEGATIVE_INFINITY;
+                for (Vec2d vertex : thisVertices) {
+                    double projection = vertex.dot(axis);
+                    minPolygon = Math.min(minPolygon, projection);
+                    maxPolygon = Math.max(maxPolygon, projection);
+                }
+                double centerProjection = center.dot(axis);
+                if (centerProjection + radius < minPolygon || maxPolygon < centerProjection - radius) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void project(double axisX, double axisY, double[] interval) {
+        interval[0] = Double.POSITIVE_INFINITY;
+        interval[1] = Double.NEGATIVE_INFINITY;
+        for (Vec2d offset : offsets) {
+            double projection = offset.getX() * axisX + offset.getY() * axisY;
+            interval[0] = Math.min(interval[0], projection);
+            interval[1] = Math.max(interval[1], projection);
+        }
+        double positionProjection = position.getX() * axisX + position.getY() * axisY;
+        interval[0] += positionProjection;
+        interval[1] += positionProjection;
+    }
+
+    @Override
+    public int getNormalCount() {
+        return normals.length;
+    }
+
+    @Override
+    public void getNormal(int index, double[] normal) {
+        normal[0] = normals[index].getX();
+        normal[1] = normals[index].getY();
+    }
+
+    @Override
+    public void computeBounds(double[] bounds) {
+        bounds[0] = Double.POSITIVE_INFINITY;
+        bounds[1] = Double.POSITIVE_INFINITY;
+        bounds[2] = Double.NEGATIVE_INFINITY;
+        bounds[3] = Double.NEGATIVE_INFINITY;
+        for (Vec2d offset : offsets) {
+            bounds[0] = Math.min(bounds[0], offset.getX());
+            bounds[1] = Math.min(bounds[1], offset.getY());
+            bounds[2] = Math.max(bounds[2], offset.getX());
+            bounds[3] = Math.max(bounds[3], offset.getY());
+        }
+        bounds[0] += position.getX();
+        bounds[1] += position.getY();
+        bounds[2] += position.getX();
+        bounds[3] += position.getY();
+    }
+
+    @Override
+    public double raycast(double originX, double originY, double dirX, double dirY, double maxDistance) {
+        // Clip the ray against the half plane behind every edge
+        double tEnter = 0;
+        double tExit = maxDistance;
+        for (int i = 0; i < offsets.length; i++) {
+            double normalX = normals[i].getX();
+            double normalY = normals[i].getY();
+            double vertexX = position.getX() + offsets[i].getX();
+            double vertexY = position.getY() + offsets[i].getY();
+
+            double numerator = normalX * (vertexX - originX) + normalY * (vertexY - originY);
+            double denominator = normalX * dirX + normalY * dirY;
+            if (Math.abs(denominator) < Math.ulp(1.0)) {
+                // The ray runs parallel to the edge so it must start behind it
+                if (numerator < 0) {
+                    return -1;
+                }
+                continue;
+            }
+
+            double t = numerator / denominator;
+            if (denominator < 0) {
+                tEnter = Math.max(tEnter, t);
+            } else {
+                tExit = Math.min(tExit, t);
+            }
+            if (tEnter > tExit) {
+                return -1;
+            }
+        }
+        return tEnter;
+    }
+
+    @Override
+    public Vec2d getPosition() {
+        return position;
+    }
+
+    @Override
+    public void setPosition(Vec2d position) {
+        this.position = position;
+    }
+
+    public Vec2d[] getOffsets() {
+        return offsets.clone();
+    }
+
+    public Vec2d[] getNormals() {
+        return normals.clone();
+    }
+}
@@ -6,7 +6,18 @@ import java.io.Serializable;
 import java.util.ArrayList;
 
 public abstract class Entity implements Serializable {
-    protected String id;
+    // Kinds of values held by the fields of an entity's state
+    public static final int STATE_POSITION = 0;
+    public static final int STATE_VELOCITY = 1;
+    public static final int STATE_DIRECTION = 2;
+    public static final int STATE_OTHER = 3;
+
+    // Marks an entity its game has not given an id
+    public static final int NO_ID = -1;
+
+    // Names are for display while the dense id identifies the entity within its game and on the network
+    protected String name;
+    protected int id = NO_ID;
     protected Vec2d position;
     protected Vec2d velocity;
     protected ArrayList<Collider> colliders;
@@ -32,9 +43,22 @@ public abstract class Entity implements Serializable {
      * second collider will be the collider in the other entity.
      */
     public Collider[] collidesWith(Entity other) {
+        return collidesWith(other, null);
+    }
+
+    /**
+     * Checks if this entity collides with another entity, reusing separating axes found on earlier ticks
+     * @param other the entity to check collision with
+     * @param cache the cache holding separating axes or null to test every pair from scratch
+     * @return return either null or 2 colliders as described in collidesWith(Entity)
+     */
+    public Collider[] collidesWith(Entity other, CollisionCache cache) {
         for (Collider thisCollider : this.colliders) {
             for (Collider otherCollider : other.colliders) {
-                if (thisCollider.collide(otherCollider)) {
+                boolean colliding = cache != null
+                        ? cache.collide(thisCollider, otherCollider)
+                        : thisCollider.collide(otherCollider);
+                if (colliding) {
                     return new Collider[]{thisCollider, otherCollider};
                 }
             }
@@ -43,11 +67,73 @@ public abstract class Entity implements Serializable {
         return null;
     }
 
-    public String getId() {
+    /**
+     * Gets the number of values writeState stores for this entity
+     * @return the size of the entity's mutable state
+     */
+    public int getStateSize() {
+        return 4 + 2 * colliders.size();
+    }
+
+    /**
+     * Gets what kind of value a field of the state holds so that it can be encoded compactly
+     * @param index the index of the field in the state
+     * @return one of STATE_POSITION, STATE_VELOCITY, STATE_DIRECTION or STATE_OTHER
+     */
+    public int getStateFieldKind(int index) {
+        // The velocity is the only non-positional field, collider positions follow it
+        return index == 2 || index == 3 ? STATE_VELOCITY : STATE_POSITION;
+    }
+
+    /**
+     * Copies the entity's mutable state into a buffer
+     * @param state the buffer to write into
+     * @param offset the index to start writing at
+     * @return the index after the last value written
+     */
+    public int writeState(double[] state, int offset) {
+        state[offset++] = position.getX();
+        state[offset++] = position.getY();
+        state[offset++] = velocity.getX();
+        state[offset++] = velocity.getY();
+        for (Collider collider : colliders) {
+            state[offset++] = collider.getPosition().getX();
+            state[offset++] = collider.getPosition().getY();
+        }
+        return offset;
+    }
+
+    /**
+     * Overwrites the entity's mutable state with values previously produced by writeState
+     * @param state the buffer to read from
+     * @param offset the index to start reading at
+     * @return the index after the last value read
+     */
+    public int readState(double[] state, int offset) {
+        // Fields are assigned directly since overridden setters have side effects
+        position = new Vec2d(state[offset], state[offset + 1]);
+        velocity = new Vec2d(state[offset + 2], state[offset + 3]);
+        offset += 4;
+        for (Collider collider : colliders) {
+            collider.setPosition(new Vec2d(state[offset], state[offset + 1]));
+            offset += 2;
+        }
+        return offset;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getId() {
         return id;
     }
 
-    public void setId(String id) {
+    public void setId(int id) {
         this.id = id;
     }
 
@@ -0,0 +1,41 @@
+package engine;
+
+/**
+ * A virtual clock that moves forward by the same amount on every tick regardless of how much real time passed
+ */
+public class FixedStepClock implements SimulationClock {
+    private final long stepNanos;
+    private long time;
+
+    /**
+     * Creates a virtual clock starting at time 0
+     * @param stepNanos the time that passes on every tick in nanoseconds
+     */
+    public FixedStepClock(long stepNanos) {
+        this(stepNanos, 0);
+    }
+
+    /**
+     * Creates a virtual clock
+     * @param stepNanos the time that passes on every tick in nanoseconds
+     * @param startTime the time reported before the first tick in nanoseconds
+     */
+    public FixedStepClock(long stepNanos, long startTime) {
+        this.stepNanos = stepNanos;
+        this.time = startTime;
+    }
+
+    @Override
+    public long tick() {
+        time += stepNanos;
+        return time;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    public long getTime() {
+        return time;
+    }
+}
@@ -6,15 +6,27 @@ import javafx.scene.canvas.Canvas;
 public class GameLoop extends AnimationTimer {
     private GameScene gameScene;
     private Canvas canvas;
+    private SimulationClock clock;
 
     public GameLoop(GameScene gameScene, Canvas canvas) {
+        this(gameScene, canvas, new RealTimeClock());
+    }
+
+    /**
+     * Creates a loop that renders every frame
+     * @param gameScene the scene to progress and render
+     * @param canvas the canvas to render on
+     * @param clock the clock that supplies the time of each update
+     */
+    public GameLoop(GameScene gameScene, Canvas canvas, SimulationClock clock) {
         this.gameScene = gameScene;
         this.canvas = canvas;
+        this.clock = clock;
     }
 
     @Override
     public void handle(long now) {
-        gameScene.updateState(now);
+        gameScene.updateState(clock.tick());
         gameScene.render(canvas);
     }
 }
@@ -0,0 +1,55 @@
+package engine;
+
+/**
+ * Holds the result of a raycast. Instances are meant to be reused between queries.
+ */
+public class RaycastHit {
+    private Entity entity;
+    private Collider collider;
+    private double distance;
+    private double pointX;
+    private double pointY;
+
+    /**
+     * Records a hit
+     * @param entity the entity that was hit
+     * @param collider the collider in the entity that was hit
+     * @param distance the distance along the ray to the hit
+     * @param pointX the x coordinate of the hit
+     * @param pointY the y coordinate of the hit
+     */
+    public void set(Entity entity, Collider collider, double distance, double pointX, double pointY) {
+        this.entity = entity;
+        this.collider = collider;
+        this.distance = distance;
+        this.pointX = pointX;
+        this.pointY = pointY;
+    }
+
+    /**
+     * Clears the hit so that the result holds no entity
+     */
+    public void reset() {
+        set(null, null, -1, 0, 0);
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public Collider getCollider() {
+        return collider;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getPointX() {
+        return pointX;
+    }
+
+    public double getPointY() {
+        return pointY;
+    }
+}
@@ -0,0 +1,11 @@
+package engine;
+
+/**
+ * A clock that follows the wall clock
+ */
+public class RealTimeClock implements SimulationClock {
+    @Override
+    public long tick() {
+        return System.nanoTime();
+    }
+}
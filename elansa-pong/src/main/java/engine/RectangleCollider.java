@@ -45,6 +45,7 @@ public class RectangleCollider implements Collider {
      * @param point the point to find the closest point to
      * @return the closest point to the given point
      */
+    @Override
     public Vec2d findClosestPoint(Vec2d point) {
         Vec2d[] thisVerticesAndBasis = this.computeVerticesAndBasis();
         Vec2d basis1 = thisVerticesAndBasis[4];
@@ -109,10 +110,98 @@ public class RectangleCollider implements Collider {
             CircleCollider otherCircle = (CircleCollider) other;
             Vec2d closestPoint = findClosestPoint(otherCircle.getCenter());
             return closestPoint.sub(otherCircle.getCenter()).mag() <= otherCircle.getRadius();
+        } else if (other instanceof ConvexPolygonCollider) {
+            return other.collide(this);
         }
         return false;
     }
 
+    @Override
+    public void project(double axisX, double axisY, double[] interval) {
+        double c = Math.cos(angle);
+        double s = Math.sin(angle);
+        // Projections of the edge vectors b1 and b2 onto the axis
+        double b1Projection = width * (c * axisX + s * axisY);
+        double b2Projection = height * (-s * axisX + c * axisY);
+        double originProjection = origin.getX() * axisX + origin.getY() * axisY;
+
+        interval[0] = originProjection + Math.min(0, b1Projection) + Math.min(0, b2Projection);
+        interval[1] = originProjection + Math.max(0, b1Projection) + Math.max(0, b2Projection);
+    }
+
+    @Override
+    public int getNormalCount() {
+        return 2;
+    }
+
+    @Override
+    public void getNormal(int index, double[] normal) {
+        // The normals are the basis vectors of the local coordinate space
+        double c = Math.cos(angle);
+        double s = Math.sin(angle);
+        if (index == 0) {
+            normal[0] = c;
+            normal[1] = s;
+        } else if (index == 1) {
+            normal[0] = -s;
+            normal[1] = c;
+        } else {
+            throw new IndexOutOfBoundsException("A rectangle has 2 edge normals");
+        }
+    }
+
+    @Override
+    public void computeBounds(double[] bounds) {
+        double c = Math.cos(angle);
+        double s = Math.sin(angle);
+        // Offsets of the corners from the origin are (0, 0), b1, b1 + b2 and b2
+        double b1X = width * c;
+        double b1Y = width * s;
+        double b2X = -height * s;
+        double b2Y = height * c;
+
+        bounds[0] = origin.getX() + Math.min(0, b1X) + Math.min(0, b2X);
+        bounds[1] = origin.getY() + Math.min(0, b1Y) + Math.min(0, b2Y);
+        bounds[2] = origin.getX() + Math.max(0, b1X) + Math.max(0, b2X);
+        bounds[3] = origin.getY() + Math.max(0, b1Y) + Math.max(0, b2Y);
+    }
+
+    @Override
+    public double raycast(double originX, double originY, double dirX, double dirY, double maxDistance) {
+        // Express the ray in the rectangle's local coordinate space where the rectangle is [0, width] x [0, height]
+        double c = Math.cos(angle);
+        double s = Math.sin(angle);
+        double displacementX = originX - origin.getX();
+        double displacementY = originY - origin.getY();
+        double localOriginX = displacementX * c + displacementY * s;
+        double localOriginY = -displacementX * s + displacementY * c;
+        double localDirX = dirX * c + dirY * s;
+        double localDirY = -dirX * s + dirY * c;
+
+        // Clip the ray against both slabs
+        double tEnter = 0;
+        double tExit = maxDistance;
+        for (int axis = 0; axis < 2; axis++) {
+            double o = axis == 0 ? localOriginX : localOriginY;
+            double d = axis == 0 ? localDirX : localDirY;
+            double extent = axis == 0 ? width : height;
+            if (Math.abs(d) < Math.ulp(1.0)) {
+                if (o < 0 || o > extent) {
+                    return -1;
+                }
+                continue;
+            }
+            double t0 = -o / d;
+            double t1 = (extent - o) / d;
+            tEnter = Math.max(tEnter, Math.min(t0, t1));
+            tExit = Math.min(tExit, Math.max(t0, t1));
+            if (tEnter > tExit) {
+                return -1;
+            }
+        }
+        return tEnter;
+    }
+
     @Override
     public Vec2d getPosition() {
         return origin;
@@ -0,0 +1,33 @@
+package engine;
+
+/**
+ * A clock that runs faster or slower than another clock
+ */
+public class ScaledClock implements SimulationClock {
+    private final SimulationClock source;
+    private final double scale;
+    private Long startTime = null;
+
+    /**
+     * Creates a scaled clock
+     * @param source the clock being scaled
+     * @param scale how many nanoseconds pass on this clock per nanosecond of the source clock
+     */
+    public ScaledClock(SimulationClock source, double scale) {
+        this.source = source;
+        this.scale = scale;
+    }
+
+    @Override
+    public long tick() {
+        long sourceTime = source.tick();
+        if (startTime == null) {
+            startTime = sourceTime;
+        }
+        return startTime + (long) ((sourceTime - startTime) * scale);
+    }
+
+    public double getScale() {
+        return scale;
+    }
+}
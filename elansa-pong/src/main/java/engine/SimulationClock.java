@@ -0,0 +1,12 @@
+package engine;
+
+/**
+ * A source of time for advancing a simulation
+ */
+public interface SimulationClock {
+    /**
+     * Advances the clock to the time of the next simulation step
+     * @return the time in nanoseconds relative to an arbitrary start time
+     */
+    long tick();
+}
@@ -1,12 +1,22 @@
 package game;
 
+import engine.Collider;
+import engine.CollisionCache;
 import engine.Entity;
 import engine.GameScene;
+import engine.RaycastHit;
+import engine.SimulationClock;
 import engine.Vec2d;
 
 import java.util.ArrayList;
 
 public abstract class AbstractLocalGame implements GameScene {
+    // Masks selecting which entities a world query considers
+    public static final int QUERY_STATIC = 1;
+    public static final int QUERY_DYNAMIC = 2;
+    public static final int QUERY_PLAYERS = 4;
+    public static final int QUERY_ALL = QUERY_STATIC | QUERY_DYNAMIC | QUERY_PLAYERS;
+
     protected ArrayList<Entity> entities = new ArrayList<>();
     protected ArrayList<Entity> staticEntities = new ArrayList<>();
     protected ArrayList<Entity> dynamicEntities = new ArrayList<>();
@@ -15,6 +25,19 @@ public abstract class AbstractLocalGame implements GameScene {
     protected boolean[] activePlayers = {false, false, false, false};
     protected boolean[] automatedPlayers = {false, false, false, false};
 
+    // Scratch space for world queries so that they do not allocate
+    private transient double[] queryBounds;
+    private transient double[] queryInterval;
+    private transient double[] queryNormal;
+
+    // Separating axes remembered between ticks by the narrow phase
+    private transient CollisionCache collisionCache;
+    private boolean collisionCacheEnabled = true;
+
+    // Randomness is drawn from a 48-bit linear congruential generator whose state can be snapshotted
+    private long randomState;
+    private boolean randomSeeded = false;
+
     protected transient GameEventHandler gameEventHandler = new GameEventHandler() {
         @Override
         public void onWinnerDetermined(int winner) {
@@ -72,6 +95,334 @@ public abstract class AbstractLocalGame implements GameScene {
      */
     public abstract void resetGame();
 
+    /**
+     * Progresses the game without rendering it
+     * @param clock the clock that supplies the time of each step
+     * @param steps the number of steps to run
+     */
+    public void simulate(SimulationClock clock, int steps) {
+        for (int i = 0; i < steps; i++) {
+            updateState(clock.tick());
+        }
+    }
+
+    /**
+     * Gets the number of timers the game stores in a snapshot
+     * @return the number of timers
+     */
+    protected abstract int getTimerCount();
+
+    /**
+     * Copies the map-specific state into a snapshot
+     * @param timers receives the game's timers where null timers are written as GameSnapshot.NO_TIME
+     * @param lives receives the players' lives
+     */
+    protected abstract void saveMapState(long[] timers, int[] lives);
+
+    /**
+     * Restores the map-specific state from a snapshot. This is called after the
+     * player tables have been restored so the board layout can be rebuilt.
+     * @param timers the game's timers where GameSnapshot.NO_TIME represents a null timer
+     * @param lives the players' lives
+     */
+    protected abstract void restoreMapState(long[] timers, int[] lives);
+
+    /**
+     * Gets every entity that may be among the static entities at some point of the game.
+     * Clients that have the map look static entities up here by id instead of receiving them.
+     * @return the entities whose ids are unique within the game
+     */
+    public abstract ArrayList<Entity> getStaticEntityCatalog();
+
+    /**
+     * Gives every entity of the game a dense id starting at 0, in the order of the static entity
+     * catalog, the dynamic entities and the players. Maps call this once all their entities exist
+     * and before players are copied from their initial versions so that the copies keep the ids.
+     * @param initialPlayers the players in player number order
+     */
+    protected void assignEntityIds(Player[] initialPlayers) {
+        int nextId = 0;
+        for (Entity entity : getStaticEntityCatalog()) {
+            entity.setId(nextId++);
+        }
+        for (Entity entity : dynamicEntities) {
+            entity.setId(nextId++);
+        }
+        for (Player player : initialPlayers) {
+            player.setId(nextId++);
+        }
+    }
+
+    /**
+     * Gets the cache the narrow phase should use
+     * @return the game's collision cache or null if caching is disabled
+     */
+    public CollisionCache getCollisionCache() {
+        if (!collisionCacheEnabled) {
+            return null;
+        }
+        if (collisionCache == null) {
+            collisionCache = new CollisionCache();
+        }
+        return collisionCache;
+    }
+
+    public void setCollisionCacheEnabled(boolean collisionCacheEnabled) {
+        this.collisionCacheEnabled = collisionCacheEnabled;
+    }
+
+    /**
+     * Seeds the game's random number generator so that a run can be reproduced
+     * @param seed the seed
+     */
+    public void setRandomSeed(long seed) {
+        randomState = (seed ^ 0x5DEECE66DL) & ((1L << 48) - 1);
+        randomSeeded = true;
+    }
+
+    /**
+     * Draws a uniformly distributed number from the game's random number generator
+     * @return a number in [0, 1)
+     */
+    protected double nextRandomDouble() {
+        if (!randomSeeded) {
+            setRandomSeed(System.nanoTime());
+        }
+        return (((long) nextRandomBits(26) << 27) + nextRandomBits(27)) * 0x1.0p-53;
+    }
+
+    /**
+     * Helper method to advance the random number generator
+     * @param bits the number of random bits to produce
+     * @return the random bits
+     */
+    private int nextRandomBits(int bits) {
+        randomState = (randomState * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
+        return (int) (randomState >>> (48 - bits));
+    }
+
+    /**
+     * Allocates a snapshot large enough to hold this game's state
+     * @return an empty snapshot to be filled with saveSnapshot
+     */
+    public GameSnapshot createSnapshot() {
+        int entityStateSize = 0;
+        for (Entity entity : dynamicEntities) {
+            entityStateSize += entity.getStateSize();
+        }
+        for (Player player : players) {
+            entityStateSize += player.getStateSize();
+        }
+        return new GameSnapshot(entityStateSize, getTimerCount());
+    }
+
+    /**
+     * Copies the game's mutable state into a snapshot without allocating
+     * @param snapshot a snapshot created by createSnapshot
+     */
+    public void saveSnapshot(GameSnapshot snapshot) {
+        double[] entityState = snapshot.getEntityState();
+        int offset = 0;
+        for (Entity entity : dynamicEntities) {
+            offset = entity.writeState(entityState, offset);
+        }
+        for (Player player : players) {
+            offset = player.writeState(entityState, offset);
+        }
+
+        System.arraycopy(activePlayers, 0, snapshot.getActivePlayers(), 0, activePlayers.length);
+        System.arraycopy(automatedPlayers, 0, snapshot.getAutomatedPlayers(), 0, automatedPlayers.length);
+        snapshot.setRandomState(randomState);
+        snapshot.setRandomSeeded(randomSeeded);
+        saveMapState(snapshot.getTimers(), snapshot.getLives());
+    }
+
+    /**
+     * Returns the game to the state held in a snapshot
+     * @param snapshot a snapshot filled by saveSnapshot on this game
+     */
+    public void restoreSnapshot(GameSnapshot snapshot) {
+        double[] entityState = snapshot.getEntityState();
+        int offset = 0;
+        for (Entity entity : dynamicEntities) {
+            offset = entity.readState(entityState, offset);
+        }
+        for (Player player : players) {
+            offset = player.readState(entityState, offset);
+        }
+
+        System.arraycopy(snapshot.getActivePlayers(), 0, activePlayers, 0, activePlayers.length);
+        System.arraycopy(snapshot.getAutomatedPlayers(), 0, automatedPlayers, 0, automatedPlayers.length);
+        randomState = snapshot.getRandomState();
+        randomSeeded = snapshot.isRandomSeeded();
+        restoreMapState(snapshot.getTimers(), snapshot.getLives());
+    }
+
+    /**
+     * Finds the first entity hit by a ray
+     * @param origin the starting point of the ray
+     * @param direction the direction of the ray which does not need to be normalized
+     * @param maxDistance the farthest distance along the ray to consider
+     * @param mask a combination of the QUERY flags selecting which entities to test
+     * @param hit receives the closest hit and is reset if nothing is hit
+     * @return true if the ray hit an entity
+     */
+    public boolean raycast(Vec2d origin, Vec2d direction, double maxDistance, int mask, RaycastHit hit) {
+        hit.reset();
+        double length = Math.sqrt(direction.getX() * direction.getX() + direction.getY() * direction.getY());
+        if (length < Math.ulp(1.0)) {
+            return false;
+        }
+        double dirX = direction.getX() / length;
+        double dirY = direction.getY() / length;
+        double originX = origin.getX();
+        double originY = origin.getY();
+
+        // The ray's bounding box is used to reject colliders before the exact test
+        double rayMinX = Math.min(originX, originX + dirX * maxDistance);
+        double rayMinY = Math.min(originY, originY + dirY * maxDistance);
+        double rayMaxX = Math.max(originX, originX + dirX * maxDistance);
+        double rayMaxY = Math.max(originY, originY + dirY * maxDistance);
+
+        double closest = maxDistance;
+        for (int category = QUERY_STATIC; category <= QUERY_PLAYERS; category <<= 1) {
+            if ((mask & category) == 0) {
+                continue;
+            }
+            int count = countQueryEntities(category);
+            for (int i = 0; i < count; i++) {
+                Entity entity = getQueryEntity(category, i);
+                if (entity == null) {
+                    continue;
+                }
+                for (Collider collider : entity.getColliders()) {
+                    if (!boundsOverlap(collider, rayMinX, rayMinY, rayMaxX, rayMaxY)) {
+                        continue;
+                    }
+                    double distance = collider.raycast(originX, originY, dirX, dirY, closest);
+                    if (distance >= 0 && (hit.getEntity() == null || distance < closest)) {
+                        closest = distance;
+                        hit.set(entity, collider, distance, originX + dirX * distance, originY + dirY * distance);
+                    }
+                }
+            }
+        }
+        return hit.getEntity() != null;
+    }
+
+    /**
+     * Finds the entities with a collider overlapping an axis-aligned box. Bounding boxes reject
+     * colliders cheaply before the exact test against the collider's shape.
+     * @param box the minimum x, minimum y, maximum x and maximum y of the box
+     * @param mask a combination of the QUERY flags selecting which entities to test
+     * @param results receives the entities found. The search stops once it is full.
+     * @return the number of entities written into results
+     */
+    public int queryAabb(double[] box, int mask, Entity[] results) {
+        int found = 0;
+        for (int category = QUERY_STATIC; category <= QUERY_PLAYERS; category <<= 1) {
+            if ((mask & category) == 0) {
+                continue;
+            }
+            int count = countQueryEntities(category);
+            for (int i = 0; i < count && found < results.length; i++) {
+                Entity entity = getQueryEntity(category, i);
+                if (entity == null) {
+                    continue;
+                }
+                for (Collider collider : entity.getColliders()) {
+                    if (boundsOverlap(collider, box[0], box[1], box[2], box[3]) && boxOverlaps(collider, box)) {
+                        results[found++] = entity;
+                        break;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Helper method to count the entities belonging to a query category
+     * @param category one of the QUERY flags
+     * @return the number of slots to visit for the category
+     */
+    private int countQueryEntities(int category) {
+        if (category == QUERY_STATIC) {
+            return staticEntities.size();
+        } else if (category == QUERY_DYNAMIC) {
+            return dynamicEntities.size();
+        }
+        return players.length;
+    }
+
+    /**
+     * Helper method to fetch an entity belonging to a query category
+     * @param category one of the QUERY flags
+     * @param index the slot to fetch
+     * @return the entity or null if the slot holds an inactive player
+     */
+    private Entity getQueryEntity(int category, int index) {
+        if (category == QUERY_STATIC) {
+            return staticEntities.get(index);
+        } else if (category == QUERY_DYNAMIC) {
+            return dynamicEntities.get(index);
+        }
+        return activePlayers[index] ? players[index] : null;
+    }
+
+    /**
+     * Helper method to check if a collider's bounding box overlaps a box
+     * @return true if the boxes overlap
+     */
+    private boolean boundsOverlap(Collider collider, double minX, double minY, double maxX, double maxY) {
+        if (queryBounds == null) {
+            queryBounds = new double[4];
+        }
+        collider.computeBounds(queryBounds);
+        return queryBounds[0] <= maxX && minX <= queryBounds[2] && queryBounds[1] <= maxY && minY <= queryBounds[3];
+    }
+
+    /**
+     * Helper method to check whether a collider whose bounds overlap a box overlaps the box itself.
+     * The bounds already cover the box's axes, which leaves the collider's edge normals to test, or for
+     * a circle the axis from its center to the closest point of the box.
+     */
+    private boolean boxOverlaps(Collider collider, double[] box) {
+        if (queryInterval == null) {
+            queryInterval = new double[2];
+            queryNormal = new double[2];
+        }
+        int normalCount = collider.getNormalCount();
+        if (normalCount == 0) {
+            Vec2d center = collider.getPosition();
+            double offsetX = Math.min(Math.max(center.getX(), box[0]), box[2]) - center.getX();
+            double offsetY = Math.min(Math.max(center.getY(), box[1]), box[3]) - center.getY();
+            double distance = Math.sqrt(offsetX * offsetX + offsetY * offsetY);
+            // The center lies inside the box
+            if (distance < Math.ulp(1.0)) {
+                return true;
+            }
+            return !separatesBox(collider, offsetX / distance, offsetY / distance, box);
+        }
+        for (int i = 0; i < normalCount; i++) {
+            collider.getNormal(i, queryNormal);
+            if (separatesBox(collider, queryNormal[0], queryNormal[1], box)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to check whether an axis separates a collider from an axis-aligned box
+     */
+    private boolean separatesBox(Collider collider, double axisX, double axisY, double[] box) {
+        collider.project(axisX, axisY, queryInterval);
+        double centerProjection = (box[0] + box[2]) / 2 * axisX + (box[1] + box[3]) / 2 * axisY;
+        double radius = (box[2] - box[0]) / 2 * Math.abs(axisX) + (box[3] - box[1]) / 2 * Math.abs(axisY);
+        return queryInterval[1] < centerProjection - radius || centerProjection + radius < queryInterval[0];
+    }
+
     public void setGameEventHandler(GameEventHandler gameEventHandler) {
         this.gameEventHandler = gameEventHandler;
     }
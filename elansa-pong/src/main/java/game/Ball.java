@@ -26,7 +26,7 @@ public class Ball extends Entity {
         Vec2d centerPosition,
         double radius
     ) {
-        this.id = name;
+        this.name = name;
         this.position = centerPosition;
         this.velocity = new Vec2d(0, 0);
         this.colliders = new ArrayList<>();
@@ -44,6 +44,32 @@ public class Ball extends Entity {
         collider.setPosition(position);
     }
 
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 2;
+    }
+
+    @Override
+    public int getStateFieldKind(int index) {
+        // The last contact free position is also a position
+        return index < super.getStateSize() ? super.getStateFieldKind(index) : STATE_POSITION;
+    }
+
+    @Override
+    public int writeState(double[] state, int offset) {
+        offset = super.writeState(state, offset);
+        state[offset++] = lastContactFreePosition.getX();
+        state[offset++] = lastContactFreePosition.getY();
+        return offset;
+    }
+
+    @Override
+    public int readState(double[] state, int offset) {
+        offset = super.readState(state, offset);
+        lastContactFreePosition = new Vec2d(state[offset], state[offset + 1]);
+        return offset + 2;
+    }
+
     @Override
     public void render(Canvas canvas) {
         GraphicsContext ctx = canvas.getGraphicsContext2D();
@@ -76,6 +102,16 @@ public class Ball extends Entity {
             Vec2d contactPoint = rectangleCollider.findClosestPoint(collider.getCenter());
             Vec2d normal = collider.getCenter().sub(contactPoint);
 
+            volume = Math.abs(this.velocity.normalize().dot(normal.normalize()));
+            this.velocity = this.velocity
+                    .add(
+                            this.velocity.projectOnto(normal).scale(-2.0)
+                    );
+        } else if (otherCollider instanceof ConvexPolygonCollider) {
+            ConvexPolygonCollider polygonCollider = (ConvexPolygonCollider) otherCollider;
+            Vec2d contactPoint = polygonCollider.findClosestPoint(collider.getCenter());
+            Vec2d normal = collider.getCenter().sub(contactPoint);
+
             volume = Math.abs(this.velocity.normalize().dot(normal.normalize()));
             this.velocity = this.velocity
                     .add(
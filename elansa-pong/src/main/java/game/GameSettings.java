@@ -1,42 +1,36 @@
 package game;
 
-import engine.*;
-import netcode.packets.*;
-
-import java.util.ArrayList;
-
 public class GameSettings {
-    public static final Class<?>[] SERIALIZABLE_WHITELIST = {
-            // Built-in Java Classes
-            ArrayList.class,
-            int[].class,
-            boolean[].class,
-
-            // Engine Classes
-            CircleCollider.class,
-            Collider.class,
-            CollisionEventHandler.class,
-            Entity.class,
-            RectangleCollider.class,
-            Vec2d.class,
-
-            // Game-specific Classes
-            Ball.class,
-            Obstacle.class,
-            Player.class,
-
-            // Networking Packets
-            Connect.class,
-            GameOver.class,
-            LivesUpdate.class,
-            Packet.class,
-            PlayerAssignment.class,
-            PlayerEliminated.class,
-            PlayerInput.class,
-            Ready.class,
-            Synchronization.class
-    };
     public static final String BALL_BONK_AUDIO = "resources/bonk.wav";
     public static final String BELL_AUDIO = "resources/bell.wav";
     public static boolean SOUND_EFFECTS_ON = true;
+    // Precision of positions and velocities in non-critical synchronizations
+    public static int SNAPSHOT_POSITION_BITS = 16;
+    public static int SNAPSHOT_VELOCITY_BITS = 16;
+    // Largest datagram the server fills with a snapshot fragment or reliable messages, kept below a typical path MTU
+    public static int MAX_DATAGRAM_BYTES = 1200;
+    // Reliable messages from this size on are compressed for clients that support it, 0 disables compression
+    public static int COMPRESSION_THRESHOLD_BYTES = 512;
+    // Number of sockets sharing the server's UDP port when the epoll transport is used
+    public static int UDP_RECEIVE_THREADS = Runtime.getRuntime().availableProcessors();
+    // Time between the pings both ends send to measure the connection
+    public static int PING_INTERVAL_MILLIS = 250;
+    // Largest packet either end accepts over TCP, where only small control packets are sent
+    public static int MAX_TCP_FRAME_BYTES = 64 * 1024;
+    // Upper bound of the bandwidth the server spends on each client
+    public static int MAX_CLIENT_BYTES_PER_SECOND = 128 * 1024;
+    // Directory where clients keep the maps they downloaded from servers, named by their SHA-256 hash
+    public static String MAP_CACHE_DIRECTORY = "map-cache";
+    // A client's TCP channel stops being writable above the high watermark and becomes writable again below the low one
+    public static int TCP_WRITE_BUFFER_LOW_BYTES = 32 * 1024;
+    public static int TCP_WRITE_BUFFER_HIGH_BYTES = 64 * 1024;
+    // Most bytes of unacknowledged reliable messages the server keeps for a client before disconnecting it
+    public static int MAX_PENDING_RELIABLE_BYTES = 256 * 1024;
+    // Time a client may leave reliable messages unacknowledged or its TCP channel unwritable before it is disconnected
+    public static int SLOW_CLIENT_TIMEOUT_MILLIS = 10000;
+    // Datagrams per second the server accepts from a client and how many it may send at once above that rate
+    public static int MAX_CLIENT_DATAGRAMS_PER_SECOND = 200;
+    public static int MAX_CLIENT_DATAGRAM_BURST = 50;
+    // Time between the connection reports the server prints, 0 to disable them
+    public static int CONNECTION_REPORT_INTERVAL_MILLIS = 10000;
 }
@@ -0,0 +1,64 @@
+package game;
+
+/**
+ * Preallocated storage for the mutable state of an AbstractLocalGame.
+ * A snapshot can be written and restored repeatedly without allocating.
+ */
+public class GameSnapshot {
+    // Null timers are stored as this value
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private final double[] entityState;
+    private final long[] timers;
+    private final int[] lives = new int[4];
+    private final boolean[] activePlayers = new boolean[4];
+    private final boolean[] automatedPlayers = new boolean[4];
+    private long randomState;
+    private boolean randomSeeded;
+
+    /**
+     * Creates an empty snapshot
+     * @param entityStateSize the number of values needed to store every tracked entity
+     * @param timerCount the number of timers the game keeps
+     */
+    public GameSnapshot(int entityStateSize, int timerCount) {
+        entityState = new double[entityStateSize];
+        timers = new long[timerCount];
+    }
+
+    public double[] getEntityState() {
+        return entityState;
+    }
+
+    public long[] getTimers() {
+        return timers;
+    }
+
+    public int[] getLives() {
+        return lives;
+    }
+
+    public boolean[] getActivePlayers() {
+        return activePlayers;
+    }
+
+    public boolean[] getAutomatedPlayers() {
+        return automatedPlayers;
+    }
+
+    public long getRandomState() {
+        return randomState;
+    }
+
+    public void setRandomState(long randomState) {
+        this.randomState = randomState;
+    }
+
+    public boolean isRandomSeeded() {
+        return randomSeeded;
+    }
+
+    public void setRandomSeeded(boolean randomSeeded) {
+        this.randomSeeded = randomSeeded;
+    }
+}
@@ -22,7 +22,7 @@ public class Obstacle extends Entity {
      * @param trigger the handler that handles collision events and may be null
      */
     public Obstacle(String name, Collider[] hitZones, int[] colorRgb, boolean isVisible, CollisionEventHandler trigger) {
-        this.id = name;
+        this.name = name;
         this.position = new Vec2d(0, 0);
         this.velocity = new Vec2d(0, 0);
         this.colliders = new ArrayList<>();
@@ -72,6 +72,16 @@ public class Obstacle extends Entity {
                         },
                         4
                 );
+            } else if (collider instanceof ConvexPolygonCollider) {
+                ConvexPolygonCollider polygon = (ConvexPolygonCollider) collider;
+                Vec2d[] vertices = polygon.computeVertices();
+                double[] xPoints = new double[vertices.length];
+                double[] yPoints = new double[vertices.length];
+                for (int i = 0; i < vertices.length; i++) {
+                    xPoints[i] = vertices[i].getX() * canvas.getWidth();
+                    yPoints[i] = vertices[i].getY() * canvas.getHeight();
+                }
+                ctx.fillPolygon(xPoints, yPoints, vertices.length);
             } else if (collider instanceof CircleCollider) {
                 CircleCollider circle = (CircleCollider) collider;
                 double centerX = circle.getCenter().getX();
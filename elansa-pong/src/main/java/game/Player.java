@@ -48,7 +48,7 @@ public class Player extends Entity implements Cloneable {
             double moveSpeed
     ) {
         // Fill in engine.Entity attributes
-        this.id = name;
+        this.name = name;
         this.position = position;
         this.velocity = new Vec2d(0, 0);
 
@@ -95,6 +95,38 @@ public class Player extends Entity implements Cloneable {
         collider.setPosition(position);
     }
 
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 3;
+    }
+
+    @Override
+    public int getStateFieldKind(int index) {
+        if (index < super.getStateSize()) {
+            return super.getStateFieldKind(index);
+        }
+        // The direction is followed by the last contact free position
+        return index == super.getStateSize() ? STATE_DIRECTION : STATE_POSITION;
+    }
+
+    @Override
+    public int writeState(double[] state, int offset) {
+        offset = super.writeState(state, offset);
+        state[offset++] = direction;
+        state[offset++] = lastContactFreePosition.getX();
+        state[offset++] = lastContactFreePosition.getY();
+        return offset;
+    }
+
+    @Override
+    public int readState(double[] state, int offset) {
+        offset = super.readState(state, offset);
+        // The velocity was already restored so only the direction field is updated
+        direction = (int) state[offset];
+        lastContactFreePosition = new Vec2d(state[offset + 1], state[offset + 2]);
+        return offset + 3;
+    }
+
     /**
      * Computes the direction of the player should move in based on the locations of a collection of balls
      * @param balls a collection of balls
@@ -106,23 +138,28 @@ public class Player extends Entity implements Cloneable {
                 .add(verticesAndBasis[2])
                 .add(verticesAndBasis[3])
                 .scale(0.25);
-        balls.stream()
-            .min((b1, b2) -> {
-                double d1 = b1.getPosition().sub(paddleCenter).mag();
-                double d2 = b2.getPosition().sub(paddleCenter).mag();
-                return Double.compare(d1, d2);
-            })
-            .ifPresent(b -> {
-                double signedMagnitude = b.getPosition().sub(paddleCenter).dot(positiveDirection);
-                double paddleSpan = Math.max(collider.getHeight(), collider.getWidth()) / 2;
-                if (Math.abs(signedMagnitude) < paddleSpan) {
-                     setDirection(0);
-                } else if (signedMagnitude < 0) {
-                    setDirection(-1);
-                } else {
-                    setDirection(1);
-                }
-            });
+        Ball closestBall = null;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (Ball ball : balls) {
+            double distance = ball.getPosition().sub(paddleCenter).mag();
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                closestBall = ball;
+            }
+        }
+        if (closestBall == null) {
+            return;
+        }
+
+        double signedMagnitude = closestBall.getPosition().sub(paddleCenter).dot(positiveDirection);
+        double paddleSpan = Math.max(collider.getHeight(), collider.getWidth()) / 2;
+        if (Math.abs(signedMagnitude) < paddleSpan) {
+            setDirection(0);
+        } else if (signedMagnitude < 0) {
+            setDirection(-1);
+        } else {
+            setDirection(1);
+        }
     }
 
     /**
@@ -160,6 +197,10 @@ public class Player extends Entity implements Cloneable {
         this.velocity = positiveDirection.scale(direction * moveSpeed);
     }
 
+    public Vec2d getPositiveDirection() {
+        return positiveDirection;
+    }
+
     public double getMoveSpeed() {
         return moveSpeed;
     }
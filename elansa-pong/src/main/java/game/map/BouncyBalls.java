@@ -3,6 +3,7 @@ package game.map;
 import engine.*;
 import game.AbstractLocalGame;
 import game.Ball;
+import game.GameSnapshot;
 import game.Obstacle;
 import game.Player;
 import javafx.scene.canvas.Canvas;
@@ -12,7 +13,6 @@ import javafx.scene.input.KeyEvent;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Random;
 
 public class BouncyBalls extends AbstractLocalGame {
     long resetTime = 3_000_000_000L;
@@ -302,8 +302,9 @@ public class BouncyBalls extends AbstractLocalGame {
     };
 
     public BouncyBalls() {
-        resetPlayers();
         dynamicEntities.add(ball);
+        assignEntityIds(initialPlayers);
+        resetPlayers();
     }
 
     /**
@@ -423,6 +424,35 @@ public class BouncyBalls extends AbstractLocalGame {
         ballThrowTime = lastRecordedTime + resetTime;
     }
 
+    @Override
+    public ArrayList<Entity> getStaticEntityCatalog() {
+        ArrayList<Entity> catalog = new ArrayList<>();
+        catalog.add(bouncyBalls);
+        catalog.addAll(Arrays.asList(walls));
+        catalog.addAll(Arrays.asList(block02, block03, block12, block13));
+        return catalog;
+    }
+
+    @Override
+    protected int getTimerCount() {
+        return 2;
+    }
+
+    @Override
+    protected void saveMapState(long[] timers, int[] lives) {
+        timers[0] = lastRecordedTime != null ? lastRecordedTime : GameSnapshot.NO_TIME;
+        timers[1] = ballThrowTime != null ? ballThrowTime : GameSnapshot.NO_TIME;
+        System.arraycopy(this.lives, 0, lives, 0, this.lives.length);
+    }
+
+    @Override
+    protected void restoreMapState(long[] timers, int[] lives) {
+        lastRecordedTime = timers[0] != GameSnapshot.NO_TIME ? Long.valueOf(timers[0]) : null;
+        ballThrowTime = timers[1] != GameSnapshot.NO_TIME ? Long.valueOf(timers[1]) : null;
+        System.arraycopy(lives, 0, this.lives, 0, this.lives.length);
+        updatePlayerAreas();
+    }
+
     @Override
     public void updateState(long currentTime) {
         double deltaTime = 0.0;
@@ -436,7 +466,7 @@ public class BouncyBalls extends AbstractLocalGame {
         // Throw ball
         if (ball.getVelocity().mag() < Math.ulp(1.0) && currentTime > ballThrowTime) {
             ball.setVelocity(
-                new Vec2d(ballMoveSpeed, 0.0).rotate(new Random().nextDouble() * 2 * Math.PI)
+                new Vec2d(ballMoveSpeed, 0.0).rotate(nextRandomDouble() * 2 * Math.PI)
             );
         }
 
@@ -461,7 +491,7 @@ public class BouncyBalls extends AbstractLocalGame {
             for (int j = i+1; j < entities.size(); j++) {
                 Entity entity1 = entities.get(i);
                 Entity entity2 = entities.get(j);
-                Collider[] colliders = entity1.collidesWith(entity2);
+                Collider[] colliders = entity1.collidesWith(entity2, getCollisionCache());
                 if (colliders != null) {
                     entity1.onCollision(entity2, colliders[1]);
                     entity2.onCollision(entity1, colliders[0]);
@@ -3,6 +3,7 @@ package game.map;
 import engine.*;
 import game.AbstractLocalGame;
 import game.Ball;
+import game.GameSnapshot;
 import game.Obstacle;
 import game.Player;
 import javafx.scene.canvas.Canvas;
@@ -11,7 +12,6 @@ import javafx.scene.input.KeyEvent;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Random;
 
 public class Spin extends AbstractLocalGame {
     long resetTime = 3_000_000_000L;
@@ -324,9 +324,10 @@ public class Spin extends AbstractLocalGame {
     };
 
     public Spin() {
-        resetPlayers();
         dynamicEntities.add(ball);
         dynamicEntities.addAll(Arrays.asList(spinners));
+        assignEntityIds(initialPlayers);
+        resetPlayers();
     }
 
     /**
@@ -444,6 +445,36 @@ public class Spin extends AbstractLocalGame {
         ballThrowTime = lastRecordedTime + resetTime;
     }
 
+    @Override
+    public ArrayList<Entity> getStaticEntityCatalog() {
+        ArrayList<Entity> catalog = new ArrayList<>();
+        catalog.addAll(Arrays.asList(walls));
+        catalog.addAll(Arrays.asList(block02, block03, block12, block13));
+        return catalog;
+    }
+
+    @Override
+    protected int getTimerCount() {
+        return 3;
+    }
+
+    @Override
+    protected void saveMapState(long[] timers, int[] lives) {
+        timers[0] = t0 != null ? t0 : GameSnapshot.NO_TIME;
+        timers[1] = lastRecordedTime != null ? lastRecordedTime : GameSnapshot.NO_TIME;
+        timers[2] = ballThrowTime != null ? ballThrowTime : GameSnapshot.NO_TIME;
+        System.arraycopy(this.lives, 0, lives, 0, this.lives.length);
+    }
+
+    @Override
+    protected void restoreMapState(long[] timers, int[] lives) {
+        t0 = timers[0] != GameSnapshot.NO_TIME ? Long.valueOf(timers[0]) : null;
+        lastRecordedTime = timers[1] != GameSnapshot.NO_TIME ? Long.valueOf(timers[1]) : null;
+        ballThrowTime = timers[2] != GameSnapshot.NO_TIME ? Long.valueOf(timers[2]) : null;
+        System.arraycopy(lives, 0, this.lives, 0, this.lives.length);
+        updatePlayerAreas();
+    }
+
     @Override
     public void updateState(long currentTime) {
         double deltaTime = 0.0;
@@ -460,7 +491,7 @@ public class Spin extends AbstractLocalGame {
         // Throw ball
         if (ball.getVelocity().mag() < Math.ulp(1.0) && currentTime > ballThrowTime) {
             ball.setVelocity(
-                new Vec2d(ballMoveSpeed, 0.0).rotate(new Random().nextDouble() * 2 * Math.PI)
+                new Vec2d(ballMoveSpeed, 0.0).rotate(nextRandomDouble() * 2 * Math.PI)
             );
         }
 
@@ -471,7 +502,7 @@ public class Spin extends AbstractLocalGame {
         ) {
             ball.setPosition(new Vec2d(0.5, 0.5));
             ball.setVelocity(
-                    new Vec2d(ballMoveSpeed, 0.0).rotate(new Random().nextDouble() * 2 * Math.PI)
+                    new Vec2d(ballMoveSpeed, 0.0).rotate(nextRandomDouble() * 2 * Math.PI)
             );
         }
 
@@ -507,7 +538,7 @@ public class Spin extends AbstractLocalGame {
             for (int j = i+1; j < entities.size(); j++) {
                 Entity entity1 = entities.get(i);
                 Entity entity2 = entities.get(j);
-                Collider[] colliders = entity1.collidesWith(entity2);
+                Collider[] colliders = entity1.collidesWith(entity2, getCollisionCache());
                 if (colliders != null) {
                     entity1.onCollision(entity2, colliders[1]);
                     entity2.onCollision(entity1, colliders[0]);
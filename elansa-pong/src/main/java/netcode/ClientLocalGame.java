@@ -12,21 +12,34 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.media.AudioClip;
 import netcode.packets.*;
 import netcode.state.ClientUpdateHandler;
+import netcode.state.ReceivedSnapshots;
 
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class ClientLocalGame implements GameScene {
     Long lastRecordedTime = null;
 
     private Player player;
-    private String playerId;
+    private int playerId = Entity.NO_ID;
     private int playerAssignment;
 
-    private HashMap<String, Entity> entities = new HashMap<>();
+    // Indexed by entity id
+    private Entity[] entities = new Entity[0];
+    // Snapshots up to this one are older than the last critical synchronization
     private long lastReceivedSequenceNumber = -1;
+    // The snapshot each entity's state was last taken from, indexed by entity id
+    private long[] appliedSequenceNumbers = new long[0];
+    private ReceivedSnapshots receivedSnapshots = new ReceivedSnapshots();
+    // Synchronizations received by the network threads that the next frame applies
+    private ConcurrentLinkedQueue<Synchronization> receivedSynchronizations = new ConcurrentLinkedQueue<>();
+    // Reused every frame when entities are copied or checked for collisions
+    private double[] stateBuffer = new double[0];
+    private boolean[] synchronizedIds = new boolean[0];
+    private ArrayList<Entity> entitiesList = new ArrayList<>();
     private AtomicLong sequenceNumber = new AtomicLong(0);
 
     private GameClient client;
@@ -61,33 +74,8 @@ public class ClientLocalGame implements GameScene {
 
             @Override
             public void receivedSynchronization(Synchronization synchronization) {
-                if (synchronization.isCritical()) {
-                    System.out.println("Received Critical Synchronization");
-                    entities = new HashMap<>();
-                    for (Entity entity : synchronization.getEntities()) {
-                        // Player may be null if player has been eliminated and is now a spectator
-                        if (!entity.getId().equals(playerId)) {
-                            entities.put(entity.getId(), entity);
-                        } else {
-                            // Received a critical synchronization so make sure to synchronize the player's data
-                            if (player != null && entity instanceof Player) {
-                                player.setPosition(entity.getPosition());
-                                player.setVelocity(entity.getVelocity());
-                                player.setDirection(((Player) entity).getDirection());
-                            }
-                        }
-                    }
-                } else {
-                    if (synchronization.getSequenceNumber() > lastReceivedSequenceNumber) {
-                        lastReceivedSequenceNumber = synchronization.getSequenceNumber();
-                        for (Entity entity : synchronization.getEntities()) {
-                            // Player may be null if player has been eliminated and is now a spectator
-                            if (!entity.getId().equals(playerId)) {
-                                entities.put(entity.getId(), entity);
-                            }
-                        }
-                    }
-                }
+                // Applied by the game loop so that entities are only ever touched on the JavaFX thread
+                receivedSynchronizations.add(synchronization);
             }
 
             @Override
@@ -153,20 +141,38 @@ public class ClientLocalGame implements GameScene {
         }
         lastRecordedTime = currentTime;
 
+        Synchronization synchronization;
+        while ((synchronization = receivedSynchronizations.poll()) != null) {
+            applySynchronization(synchronization);
+        }
+
+        // Acknowledge the synchronizations received since the last frame
+        SnapshotAck ack = receivedSnapshots.createAck(client.getSessionToken(), client.getReliableReceiver());
+        if (ack != null && client.hasSession() && client.getUdpChannel() != null && client.getUdpChannel().isActive()) {
+            Serializer.sendPacketUdp(client.getUdpChannel(), client.getServerUdpAddress(), ack);
+        }
+
         // Update animations
         if (player != null) {
             player.setPosition(
                     player.getPosition().add(player.getVelocity().scale(deltaTime))
             );
         }
-        for (Entity entity : entities.values()) {
-            entity.setPosition(
-                    entity.getPosition().add(entity.getVelocity().scale(deltaTime))
-            );
+        for (Entity entity : entities) {
+            if (entity != null) {
+                entity.setPosition(
+                        entity.getPosition().add(entity.getVelocity().scale(deltaTime))
+                );
+            }
         }
 
         // Handle Collisions
-        ArrayList<Entity> entitiesList = new ArrayList<>(entities.values());
+        entitiesList.clear();
+        for (Entity entity : entities) {
+            if (entity != null) {
+                entitiesList.add(entity);
+            }
+        }
         if (player != null) {
             entitiesList.add(player);
         }
@@ -183,6 +189,96 @@ public class ClientLocalGame implements GameScene {
         }
     }
 
+    /**
+     * Helper method to apply a synchronization to the entities. States are read into the entities
+     * that already exist and new entities are only kept for ids that were not seen before.
+     */
+    private void applySynchronization(Synchronization synchronization) {
+        if (synchronization.isCritical()) {
+            System.out.println("Received Critical Synchronization");
+            // States sent before the critical synchronization are older than what it holds
+            lastReceivedSequenceNumber = Math.max(lastReceivedSequenceNumber, synchronization.getSequenceNumber());
+            Arrays.fill(appliedSequenceNumbers, EntityState.NO_BASELINE);
+            Arrays.fill(synchronizedIds, false);
+            for (Entity entity : synchronization.getEntities()) {
+                int id = entity.getId();
+                // Player may be null if player has been eliminated and is now a spectator
+                if (id != playerId) {
+                    ensureCapacity(id);
+                    synchronizedIds[id] = true;
+                    Entity existing = entities[id];
+                    if (existing == null || existing.getClass() != entity.getClass() || existing.getStateSize() != entity.getStateSize()) {
+                        entities[id] = entity;
+                    } else if (existing != entity) {
+                        copyState(entity, existing);
+                    }
+                } else {
+                    // Received a critical synchronization so make sure to synchronize the player's data
+                    if (player != null && entity instanceof Player) {
+                        player.setPosition(entity.getPosition());
+                        player.setVelocity(entity.getVelocity());
+                        player.setDirection(((Player) entity).getDirection());
+                    }
+                }
+            }
+            // Entities the server no longer has, such as the walls of a player who joined
+            for (int id = 0; id < entities.length; id++) {
+                if (!synchronizedIds[id]) {
+                    entities[id] = null;
+                }
+            }
+        } else {
+            // Fragments are applied on their own, each entity taking a state only if it is newer than its last one.
+            // Every state is kept even when out of order since the server may use it as a baseline.
+            long sequenceNumber = synchronization.getSequenceNumber();
+            boolean resolved = true;
+            for (EntityState entityState : synchronization.getEntityStates()) {
+                double[] state = receivedSnapshots.resolve(sequenceNumber, entityState);
+                if (state == null) {
+                    resolved = false;
+                    continue;
+                }
+                // Entities are created by critical synchronizations so only their state is updated
+                int id = entityState.getId();
+                Entity entity = id < entities.length ? entities[id] : null;
+                boolean newest = sequenceNumber > lastReceivedSequenceNumber
+                        && entity != null && sequenceNumber > appliedSequenceNumbers[id];
+                // Player may be null if player has been eliminated and is now a spectator
+                if (newest && id != playerId && entity.getStateSize() == state.length) {
+                    entity.readState(state, 0);
+                    appliedSequenceNumbers[id] = sequenceNumber;
+                }
+            }
+            // A snapshot whose baselines are unknown is not acknowledged so the server resends it in full
+            receivedSnapshots.recordFragment(synchronization, resolved);
+        }
+    }
+
+    /**
+     * Helper method to grow the entity tables to hold an id
+     */
+    private void ensureCapacity(int id) {
+        if (id < entities.length) {
+            return;
+        }
+        int length = entities.length;
+        entities = Arrays.copyOf(entities, id + 1);
+        appliedSequenceNumbers = Arrays.copyOf(appliedSequenceNumbers, id + 1);
+        Arrays.fill(appliedSequenceNumbers, length, id + 1, EntityState.NO_BASELINE);
+        synchronizedIds = Arrays.copyOf(synchronizedIds, id + 1);
+    }
+
+    /**
+     * Helper method to copy the mutable state of a received entity into the entity already shown
+     */
+    private void copyState(Entity from, Entity to) {
+        if (stateBuffer.length < from.getStateSize()) {
+            stateBuffer = new double[from.getStateSize()];
+        }
+        from.writeState(stateBuffer, 0);
+        to.readState(stateBuffer, 0);
+    }
+
     @Override
     public void onKeyPressed(KeyEvent e) {
         if (player != null) {
@@ -190,9 +286,8 @@ public class ClientLocalGame implements GameScene {
             if (client.getUdpChannel().isActive()) {
                 Serializer.sendPacketUdp(
                         client.getUdpChannel(),
-                        client.getServerIp(),
-                        client.getServerPortUdp(),
-                        new PlayerInput(player.getDirection(), player.getPosition(), sequenceNumber.getAndIncrement())
+                        client.getServerUdpAddress(),
+                        new PlayerInput(client.getSessionToken(), player.getDirection(), player.getPosition(), sequenceNumber.getAndIncrement())
                 );
             }
         }
@@ -205,9 +300,8 @@ public class ClientLocalGame implements GameScene {
             if (client.getUdpChannel().isActive()) {
                 Serializer.sendPacketUdp(
                         client.getUdpChannel(),
-                        client.getServerIp(),
-                        client.getServerPortUdp(),
-                        new PlayerInput(player.getDirection(), player.getPosition(), sequenceNumber.getAndIncrement())
+                        client.getServerUdpAddress(),
+                        new PlayerInput(client.getSessionToken(), player.getDirection(), player.getPosition(), sequenceNumber.getAndIncrement())
                 );
             }
 
@@ -222,8 +316,10 @@ public class ClientLocalGame implements GameScene {
     public void render(Canvas canvas) {
         GraphicsContext ctx = canvas.getGraphicsContext2D();
         ctx.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
-        for (Entity entity : entities.values()) {
-            entity.render(canvas);
+        for (Entity entity : entities) {
+            if (entity != null) {
+                entity.render(canvas);
+            }
         }
         if (player != null) {
             player.render(canvas);
@@ -0,0 +1,143 @@
+package netcode;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.SegmentedDatagramPacket;
+import io.netty.channel.socket.DatagramPacket;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Collects the datagrams of a tick by destination and sends them with a single flush.
+ * On epoll the flush writes every queued datagram with one sendmmsg call, and when the
+ * kernel supports UDP segmentation offload, consecutive datagrams of the same size for the
+ * same destination are merged into one segmented packet which the kernel splits back into
+ * individual datagrams. Only the last segment of a packet may be shorter, so datagrams are
+ * never padded, which keeps what a client is charged for equal to what goes on the wire,
+ * and every destination receives its datagrams in the order they were queued.
+ */
+public class DatagramBatcher {
+    // Limits imposed by the kernel on a segmented packet
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MAX_SEGMENTED_BYTES = 65000;
+
+    private static final ChannelFutureListener LOG_FAILURE = f -> {
+        if (!f.isSuccess()) {
+            f.cause().printStackTrace();
+        }
+    };
+
+    private Channel udpChannel;
+    private boolean segmentationSupported;
+    private LinkedHashMap<InetSocketAddress, ArrayList<ByteBuf>> pending = new LinkedHashMap<>();
+
+    private long datagramCount = 0;
+    private long writeCount = 0;
+
+    /**
+     * Creates a batcher
+     * @param udpChannel the channel to send the datagrams over
+     */
+    public DatagramBatcher(Channel udpChannel) {
+        this.udpChannel = udpChannel;
+        segmentationSupported = udpChannel instanceof EpollDatagramChannel && SegmentedDatagramPacket.isSupported();
+    }
+
+    /**
+     * Queues a datagram. The batcher keeps a duplicate of the buffer so the caller still has to release it.
+     * @param recipient the destination
+     * @param encoded the content of the datagram
+     */
+    public void add(InetSocketAddress recipient, ByteBuf encoded) {
+        pending.computeIfAbsent(recipient, k -> new ArrayList<>()).add(encoded.retainedDuplicate());
+        datagramCount++;
+    }
+
+    /**
+     * Writes every queued datagram and flushes the channel once
+     */
+    public void flush() {
+        for (InetSocketAddress recipient : pending.keySet()) {
+            ArrayList<ByteBuf> datagrams = pending.get(recipient);
+            if (segmentationSupported && datagrams.size() > 1) {
+                writeSegmented(recipient, datagrams);
+            } else {
+                for (ByteBuf datagram : datagrams) {
+                    write(new DatagramPacket(datagram, recipient));
+                }
+            }
+        }
+        pending.clear();
+        udpChannel.flush();
+    }
+
+    /**
+     * Helper method to merge the datagrams for one destination into as few segmented packets as possible
+     * without reordering them. A packet takes a run of datagrams of equal size and may end with one shorter datagram.
+     */
+    private void writeSegmented(InetSocketAddress recipient, ArrayList<ByteBuf> datagrams) {
+        int start = 0;
+        while (start < datagrams.size()) {
+            int segmentSize = datagrams.get(start).readableBytes();
+            int end = start + 1;
+            while (end < datagrams.size()
+                    && end - start < MAX_SEGMENTS
+                    && (end - start + 1) * segmentSize <= MAX_SEGMENTED_BYTES) {
+                int size = datagrams.get(end).readableBytes();
+                if (size > segmentSize) {
+                    break;
+                }
+                end++;
+                // The last segment may be shorter than the others
+                if (size < segmentSize) {
+                    break;
+                }
+            }
+
+            if (end - start == 1) {
+                write(new DatagramPacket(datagrams.get(start), recipient));
+            } else {
+                ByteBuf segments = udpChannel.alloc().directBuffer(segmentSize * (end - start));
+                for (int i = start; i < end; i++) {
+                    ByteBuf datagram = datagrams.get(i);
+                    segments.writeBytes(datagram);
+                    datagram.release();
+                }
+                write(new SegmentedDatagramPacket(segments, segmentSize, recipient));
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Helper method to queue a packet on the channel
+     */
+    private void write(DatagramPacket packet) {
+        writeCount++;
+        udpChannel.write(packet).addListener(LOG_FAILURE);
+    }
+
+    public boolean isSegmentationSupported() {
+        return segmentationSupported;
+    }
+
+    /**
+     * Gets the number of datagrams queued since the batcher was created
+     * @return the number of datagrams
+     */
+    public long getDatagramCount() {
+        return datagramCount;
+    }
+
+    /**
+     * Gets the number of packets handed to the channel, a segmented packet counting once
+     * @return the number of packets
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+}
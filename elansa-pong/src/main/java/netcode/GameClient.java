@@ -1,17 +1,17 @@
 package netcode;
 
+import engine.Entity;
 import engine.GameLoop;
 import game.GameEventHandler;
+import game.GameSettings;
 import game.ui.DisplayMessage;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioDatagramChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -20,19 +20,52 @@ import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import netcode.handlers.ClientTcpHandler;
 import netcode.handlers.ClientUdpHandler;
+import netcode.packets.GameOver;
+import netcode.packets.LivesUpdate;
+import netcode.packets.MapChunk;
+import netcode.packets.MapRequest;
+import netcode.packets.Packet;
 import netcode.packets.PacketDecoder;
 import netcode.packets.PacketEncoder;
+import netcode.packets.PlayerAssignment;
+import netcode.packets.PlayerEliminated;
+import netcode.packets.Serializer;
+import netcode.packets.Synchronization;
 import netcode.state.ClientUpdateHandler;
+import netcode.state.ConnectionStats;
+import netcode.state.MapCache;
+import netcode.state.ReliableReceiver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 public class GameClient {
     private String serverIp;
     private int serverPortTcp;
     private int serverPortUdp;
+    private InetSocketAddress serverUdpAddress;
 
     private Channel udpChannel;
     private Channel tcpChannel;
 
     private ClientUpdateHandler updateHandlerHook;
+    private ReliableReceiver reliableReceiver = new ReliableReceiver();
+    private volatile Integer sessionToken = null;
+    private ConnectionStats connectionStats = new ConnectionStats();
+
+    private MapCache mapCache = new MapCache(new File(GameSettings.MAP_CACHE_DIRECTORY));
+    // The map announced by the server while it is being downloaded
+    private byte[] mapHash;
+    private ByteArrayOutputStream mapDownload;
+    private int receivedMapChunks;
+    // The map's static entities indexed by id, which critical synchronizations refer to
+    private Entity[] staticEntityCatalog;
+    // The latest critical synchronization received before the map was loaded
+    private Synchronization heldSynchronization;
 
     private DisplayMessage livesBoard;
     private DisplayMessage eliminationNotification;
@@ -58,27 +91,36 @@ public class GameClient {
     public void establishConnection() throws InterruptedException {
         GameClient client = this;
 
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        EventLoopGroup workerGroup = Transport.createEventLoopGroup(0);
         try {
+            // Resolve the server once instead of on every datagram
+            serverUdpAddress = new InetSocketAddress(serverIp, serverPortUdp);
+
             // Bootstrap UDP Channel
             Bootstrap udp = new Bootstrap();
             udp.group(workerGroup)
-                    .channel(NioDatagramChannel.class)
-                    .handler(new ChannelInitializer<NioDatagramChannel>() {
+                    .channel(Transport.getDatagramChannelClass())
+                    .handler(new ChannelInitializer<DatagramChannel>() {
                         @Override
-                        protected void initChannel(NioDatagramChannel nioDatagramChannel) throws Exception {
-                            ChannelPipeline pipeline = nioDatagramChannel.pipeline();
+                        protected void initChannel(DatagramChannel datagramChannel) throws Exception {
+                            ChannelPipeline pipeline = datagramChannel.pipeline();
                             pipeline.addLast(new ClientUdpHandler(client));
                         }
                     });
 
             udpChannel = udp.bind(0).sync().channel();
             System.out.println(udpChannel.localAddress());
+            // Measure the connection once the server knows the client
+            udpChannel.eventLoop().scheduleAtFixedRate(() -> {
+                if (hasSession() && udpChannel.isActive()) {
+                    Serializer.sendPacketUdp(udpChannel, serverUdpAddress, connectionStats.createPing(getSessionToken(), System.nanoTime()));
+                }
+            }, 0, GameSettings.PING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
 
             // Boostrap TCP Channel
             Bootstrap tcp = new Bootstrap();
             tcp.group(workerGroup)
-                    .channel(NioSocketChannel.class)
+                    .channel(Transport.getSocketChannelClass())
                     .handler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel socketChannel) throws Exception {
@@ -104,6 +146,125 @@ public class GameClient {
         }
     }
 
+    /**
+     * Passes a packet received from the server on to the update handler
+     * @param packet the packet received over TCP or delivered by the reliable channel
+     */
+    public void handlePacket(Packet packet) {
+        if (packet instanceof PlayerAssignment) {
+            sessionToken = ((PlayerAssignment) packet).getSessionToken();
+            updateHandlerHook.receivedPlayerAssignment((PlayerAssignment) packet);
+            loadMap(((PlayerAssignment) packet).getMapHash());
+        } else if (packet instanceof MapChunk) {
+            receivedMapChunk((MapChunk) packet);
+        } else if (packet instanceof Synchronization) {
+            Synchronization synchronization = (Synchronization) packet;
+            if (synchronization.isCritical()) {
+                receivedCriticalSynchronization(synchronization);
+            } else {
+                updateHandlerHook.receivedSynchronization(synchronization);
+            }
+        } else if (packet instanceof PlayerEliminated) {
+            updateHandlerHook.receivedPlayerElimination((PlayerEliminated) packet);
+        } else if (packet instanceof LivesUpdate) {
+            updateHandlerHook.receivedLivesUpdate((LivesUpdate) packet);
+        } else if (packet instanceof GameOver) {
+            updateHandlerHook.receivedGameOver((GameOver) packet);
+        }
+        // A Superseded packet only holds the place of a synchronization a newer one replaced
+    }
+
+    /**
+     * Helper method to load the map the server announced from the cache or to request it from the server
+     */
+    private synchronized void loadMap(byte[] announcedMapHash) {
+        mapHash = announcedMapHash;
+        staticEntityCatalog = null;
+        byte[] gameMap = mapCache.load(mapHash);
+        if (gameMap != null) {
+            useMap(gameMap);
+            return;
+        }
+        System.out.println("Downloading map " + MapCache.toHex(mapHash));
+        mapDownload = new ByteArrayOutputStream();
+        receivedMapChunks = 0;
+        tcpChannel.writeAndFlush(new MapRequest(mapHash));
+    }
+
+    /**
+     * Helper method to append a chunk of the map being downloaded. The reliable channel delivers
+     * the chunks in order, and the complete map is checked against the announced hash before it is cached.
+     */
+    private synchronized void receivedMapChunk(MapChunk chunk) {
+        if (mapDownload == null || chunk.getChunkIndex() != receivedMapChunks) {
+            return;
+        }
+        mapDownload.write(chunk.getData(), 0, chunk.getData().length);
+        receivedMapChunks++;
+        if (receivedMapChunks < chunk.getChunkCount()) {
+            return;
+        }
+
+        byte[] gameMap = mapDownload.toByteArray();
+        mapDownload = null;
+        if (!Arrays.equals(MapCache.hash(gameMap), mapHash)) {
+            System.out.println("Downloaded map does not match " + MapCache.toHex(mapHash));
+            return;
+        }
+        mapCache.store(mapHash, gameMap);
+        useMap(gameMap);
+    }
+
+    /**
+     * Helper method to collect the static entities of a loaded map and to pass on the critical
+     * synchronization that was waiting for them
+     */
+    private synchronized void useMap(byte[] gameMap) {
+        Entity[] catalog = new Entity[0];
+        try {
+            // Decoded like any packet so a server cannot make the client deserialize Java objects
+            for (Entity entity : Serializer.readStaticEntities(gameMap)) {
+                if (entity.getId() >= catalog.length) {
+                    catalog = Arrays.copyOf(catalog, entity.getId() + 1);
+                }
+                catalog[entity.getId()] = entity;
+            }
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return;
+        }
+        staticEntityCatalog = catalog;
+
+        if (heldSynchronization != null) {
+            Synchronization synchronization = heldSynchronization;
+            heldSynchronization = null;
+            receivedCriticalSynchronization(synchronization);
+        }
+    }
+
+    /**
+     * Helper method to replace the ids of static entities in a critical synchronization by the map's entities.
+     * Until the map is loaded only the latest critical synchronization is kept since it replaces the earlier ones.
+     */
+    private synchronized void receivedCriticalSynchronization(Synchronization synchronization) {
+        if (staticEntityCatalog == null) {
+            heldSynchronization = synchronization;
+            return;
+        }
+
+        ArrayList<Entity> entities = new ArrayList<>();
+        for (int id : synchronization.getStaticEntityIds()) {
+            Entity entity = id < staticEntityCatalog.length ? staticEntityCatalog[id] : null;
+            if (entity != null) {
+                entities.add(entity);
+            } else {
+                System.out.println("Map has no static entity " + id);
+            }
+        }
+        entities.addAll(synchronization.getEntities());
+        updateHandlerHook.receivedSynchronization(new Synchronization(entities, true, synchronization.getSequenceNumber()));
+    }
+
     /**
      * Cleans up the client's resources
      */
@@ -117,6 +278,7 @@ public class GameClient {
         if (gameLoop != null) {
             gameLoop.stop();
         }
+        reliableReceiver.close();
     }
 
     /**
@@ -182,6 +344,10 @@ public class GameClient {
         return serverPortUdp;
     }
 
+    public InetSocketAddress getServerUdpAddress() {
+        return serverUdpAddress;
+    }
+
     public Channel getUdpChannel() {
         return udpChannel;
     }
@@ -190,6 +356,36 @@ public class GameClient {
         return tcpChannel;
     }
 
+    /**
+     * Checks whether the server assigned the client a session
+     * @return true once the player assignment was received
+     */
+    public boolean hasSession() {
+        return sessionToken != null;
+    }
+
+    /**
+     * Gets the token the client puts in every packet it sends over UDP
+     * @return the session token or 0 before the player assignment was received
+     */
+    public int getSessionToken() {
+        Integer token = sessionToken;
+        return token == null ? 0 : token;
+    }
+
+    public ReliableReceiver getReliableReceiver() {
+        return reliableReceiver;
+    }
+
+    /**
+     * Gets the measurements of the connection to the server, such as the round trip time
+     * and the offset of the server's clock
+     * @return the connection's measurements
+     */
+    public ConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
     public void setUpdateHandlerHook(ClientUpdateHandler updateHandlerHook) {
         this.updateHandlerHook = updateHandlerHook;
     }
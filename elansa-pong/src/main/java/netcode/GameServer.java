@@ -5,12 +5,14 @@ import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioDatagramChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import netcode.handlers.ServerTcpHandler;
 import netcode.handlers.ServerUdpHandler;
 import netcode.packets.PacketDecoder;
@@ -27,6 +29,8 @@ public class GameServer {
     private int portUdp;
 
     private ServerState serverState;
+    // Runs the simulation and every change to the server state
+    private volatile EventLoop simulationLoop;
 
     /**
      * Creates a game server that hosts a networked game
@@ -55,22 +59,35 @@ public class GameServer {
     public void launchServer() throws InterruptedException {
         GameServer gameServer = this;
 
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        EventLoopGroup bossGroup = Transport.createEventLoopGroup(0);
+        EventLoopGroup workerGroup = Transport.createEventLoopGroup(0);
+        // With epoll several sockets share the UDP port so that datagrams are received on several threads
+        int udpThreads = Transport.isEpoll() ? Math.max(1, GameSettings.UDP_RECEIVE_THREADS) : 1;
+        EventLoopGroup udpGroup = Transport.createEventLoopGroup(udpThreads);
 
         try {
-            // Bootstrap UDP channel
+            // Bootstrap UDP channels
             Bootstrap udp = new Bootstrap();
-            udp.group(workerGroup)
-                    .channel(NioDatagramChannel.class)
-                    .handler(new ChannelInitializer<NioDatagramChannel>() {
+            udp.group(udpGroup)
+                    .channel(Transport.getDatagramChannelClass())
+                    .handler(new ChannelInitializer<DatagramChannel>() {
                         @Override
-                        protected void initChannel(NioDatagramChannel nioDatagramChannel) throws Exception {
-                            ChannelPipeline pipeline = nioDatagramChannel.pipeline();
+                        protected void initChannel(DatagramChannel datagramChannel) throws Exception {
+                            ChannelPipeline pipeline = datagramChannel.pipeline();
                             pipeline.addLast(new ServerUdpHandler(gameServer));
                         }
                     });
+            if (Transport.isEpoll()) {
+                udp.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+            // The first channel sends the game and its event loop runs the simulation
             Channel udpChannel = udp.bind(hostname, portUdp).sync().channel();
+            simulationLoop = udpChannel.eventLoop();
+            serverState.setUdpChannel(udpChannel);
+            // Each further bind takes the next event loop of the group
+            for (int i = 1; i < udpThreads; i++) {
+                udp.bind(hostname, portUdp).sync();
+            }
             // Broadcast the game
             udpChannel.eventLoop().scheduleAtFixedRate(() -> {
                 serverState.broadcastGameState(udpChannel);
@@ -78,11 +95,14 @@ public class GameServer {
             udpChannel.eventLoop().scheduleAtFixedRate(() -> {
                 serverState.updateLocalGame();
             }, 0, 1, TimeUnit.MILLISECONDS);
-            System.out.printf("UDP Server: %s%n", udpChannel.localAddress());
+            System.out.printf("UDP Server: %s (%s, %d receive threads)%n", udpChannel.localAddress(), Transport.getName(), udpThreads);
             // Bootstrap TCP channel
             ServerBootstrap tcp = new ServerBootstrap();
             tcp.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(Transport.getServerSocketChannelClass())
+                    // A client that stops reading makes its channel unwritable instead of growing the buffer
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            GameSettings.TCP_WRITE_BUFFER_LOW_BYTES, GameSettings.TCP_WRITE_BUFFER_HIGH_BYTES))
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel socketChannel) throws Exception {
@@ -100,6 +120,23 @@ public class GameServer {
         } finally {
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
+            udpGroup.shutdownGracefully();
+        }
+    }
+
+    /**
+     * Runs a task on the event loop that owns the server state
+     * @param task the task to run
+     */
+    public void runOnSimulationLoop(Runnable task) {
+        if (simulationLoop == null) {
+            // The server is still starting so there are no sessions yet
+            return;
+        }
+        if (simulationLoop.inEventLoop()) {
+            task.run();
+        } else {
+            simulationLoop.execute(task);
         }
     }
 
@@ -0,0 +1,58 @@
+package netcode;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * Picks the channel implementations the client and server use. Netty's native epoll
+ * transport is used when it is available, which is on Linux, and NIO everywhere else.
+ */
+public class Transport {
+    /**
+     * Checks whether the native epoll transport is used
+     * @return true if epoll is available on this platform
+     */
+    public static boolean isEpoll() {
+        return Epoll.isAvailable();
+    }
+
+    /**
+     * Creates an event loop group for the selected transport
+     * @param threads the number of threads or 0 for Netty's default
+     * @return the event loop group
+     */
+    public static EventLoopGroup createEventLoopGroup(int threads) {
+        return isEpoll() ? new EpollEventLoopGroup(threads) : new NioEventLoopGroup(threads);
+    }
+
+    public static Class<? extends DatagramChannel> getDatagramChannelClass() {
+        return isEpoll() ? EpollDatagramChannel.class : NioDatagramChannel.class;
+    }
+
+    public static Class<? extends SocketChannel> getSocketChannelClass() {
+        return isEpoll() ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public static Class<? extends ServerSocketChannel> getServerSocketChannelClass() {
+        return isEpoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    /**
+     * Gets a readable name of the selected transport
+     * @return the name
+     */
+    public static String getName() {
+        return isEpoll() ? "epoll" : "nio";
+    }
+}
@@ -1,5 +1,6 @@
 package netcode.handlers;
 
+import game.GameSettings;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import netcode.GameClient;
@@ -20,15 +21,12 @@ public class ClientTcpHandler extends ChannelInboundHandlerAdapter {
         System.out.println("TCP: Connected to server...");
 
         InetSocketAddress address = (InetSocketAddress) client.getUdpChannel().localAddress();
-        ctx.writeAndFlush(new Connect(address.getPort()));
+        // Offer compression of large reliable messages unless it is turned off
+        Connect connect = new Connect(address.getPort(), GameSettings.COMPRESSION_THRESHOLD_BYTES > 0);
+        ctx.writeAndFlush(connect);
 
         // Prime udp channel
-        Serializer.sendPacketUdp(
-                client.getUdpChannel(),
-                client.getServerIp(),
-                client.getServerPortUdp(),
-                new Connect(address.getPort())
-        );
+        Serializer.sendPacketUdp(client.getUdpChannel(), client.getServerUdpAddress(), connect);
     }
 
     @Override
@@ -43,16 +41,8 @@ public class ClientTcpHandler extends ChannelInboundHandlerAdapter {
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         // Received message from server
         System.out.println("TCP: Received message from server ...");
-        if (msg instanceof PlayerAssignment) {
-            client.getUpdateHandlerHook().receivedPlayerAssignment((PlayerAssignment) msg);
-        } else if (msg instanceof Synchronization) {
-            client.getUpdateHandlerHook().receivedSynchronization((Synchronization) msg);
-        } else if (msg instanceof PlayerEliminated) {
-            client.getUpdateHandlerHook().receivedPlayerElimination((PlayerEliminated) msg);
-        } else if (msg instanceof LivesUpdate) {
-            client.getUpdateHandlerHook().receivedLivesUpdate((LivesUpdate) msg);
-        } else if (msg instanceof GameOver) {
-            client.getUpdateHandlerHook().receivedGameOver((GameOver) msg);
+        if (msg instanceof Packet) {
+            client.handlePacket((Packet) msg);
         }
     }
 
@@ -5,8 +5,12 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.DatagramPacket;
 import netcode.GameClient;
 import netcode.packets.Packet;
+import netcode.packets.Ping;
+import netcode.packets.Pong;
+import netcode.packets.ReliableBatch;
 import netcode.packets.Serializer;
 import netcode.packets.Synchronization;
+import netcode.state.ConnectionStats;
 
 public class ClientUdpHandler extends SimpleChannelInboundHandler<DatagramPacket> {
     private GameClient client;
@@ -19,6 +23,16 @@ public class ClientUdpHandler extends SimpleChannelInboundHandler<DatagramPacket
         Packet packet = Serializer.decodeUdpDatagram(datagramPacket);
         if (packet instanceof Synchronization) {
             client.getUpdateHandlerHook().receivedSynchronization((Synchronization) packet);
+        } else if (packet instanceof ReliableBatch && client.hasSession()) {
+            // Reliable messages are only taken once the assignment arrived so that they follow it and can be acknowledged
+            for (Packet message : client.getReliableReceiver().receive((ReliableBatch) packet)) {
+                client.handlePacket(message);
+            }
+        } else if (packet instanceof Ping && client.hasSession()) {
+            Pong pong = ConnectionStats.createPong(client.getSessionToken(), (Ping) packet, System.nanoTime());
+            Serializer.sendPacketUdp(channelHandlerContext.channel(), client.getServerUdpAddress(), pong);
+        } else if (packet instanceof Pong) {
+            client.getConnectionStats().onPong((Pong) packet, System.nanoTime());
         }
     }
 }
@@ -4,6 +4,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import netcode.GameServer;
 import netcode.packets.Connect;
+import netcode.packets.MapRequest;
 import netcode.packets.Ready;
 
 public class ServerTcpHandler extends ChannelInboundHandlerAdapter {
@@ -23,20 +24,32 @@ public class ServerTcpHandler extends ChannelInboundHandlerAdapter {
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         // Client has just disconnected
         System.out.println("TCP: Client disconnected ...");
-        server.getServerState().onPlayerDisconnect(ctx);
+        server.runOnSimulationLoop(() -> server.getServerState().onPlayerDisconnect(ctx));
     }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         // Received a message from client
         System.out.println("TCP: Received message from client");
+        // The server state is only changed on the simulation's thread
         if (msg instanceof Connect) {
-            server.getServerState().onPlayerConnect(ctx, (Connect) msg);
+            server.runOnSimulationLoop(() -> server.getServerState().onPlayerConnect(ctx, (Connect) msg));
         } else if (msg instanceof Ready) {
-            server.getServerState().onPlayerReady(ctx);
+            server.runOnSimulationLoop(() -> server.getServerState().onPlayerReady(ctx));
+        } else if (msg instanceof MapRequest) {
+            server.runOnSimulationLoop(() -> server.getServerState().onMapRequest(ctx, (MapRequest) msg));
         }
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // The write buffer crossed a watermark, seen here on the channel's own event loop
+        boolean writable = ctx.channel().isWritable();
+        long time = System.nanoTime();
+        server.runOnSimulationLoop(() -> server.getServerState().onWritabilityChanged(ctx, writable, time));
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         // Exception was made ... close connection
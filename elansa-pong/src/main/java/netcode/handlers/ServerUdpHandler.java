@@ -5,8 +5,14 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.DatagramPacket;
 import netcode.GameServer;
 import netcode.packets.Packet;
+import netcode.packets.Ping;
 import netcode.packets.PlayerInput;
+import netcode.packets.Pong;
 import netcode.packets.Serializer;
+import netcode.packets.SnapshotAck;
+import netcode.state.DatagramFilter;
+
+import java.net.InetSocketAddress;
 
 
 public class ServerUdpHandler extends SimpleChannelInboundHandler<DatagramPacket> {
@@ -18,9 +24,24 @@ public class ServerUdpHandler extends SimpleChannelInboundHandler<DatagramPacket
 
     @Override
     protected void channelRead0(ChannelHandlerContext channelHandlerContext, DatagramPacket datagramPacket) throws Exception {
+        InetSocketAddress sender = datagramPacket.sender();
+        // Datagrams that are not from a connected client or exceed its rate are dropped before decoding
+        DatagramFilter filter = server.getServerState().getDatagramFilter();
+        if (!filter.accept(sender, datagramPacket.content())) {
+            return;
+        }
+        // Packets are decoded on the receiving thread and applied on the simulation's thread
         Packet packet = Serializer.decodeUdpDatagram(datagramPacket);
-        if (packet instanceof PlayerInput) {
-            server.getServerState().onPlayerInput(datagramPacket.sender(), (PlayerInput) packet);
+        if (packet == null) {
+            filter.onUndecodable();
+        } else if (packet instanceof PlayerInput) {
+            server.runOnSimulationLoop(() -> server.getServerState().onPlayerInput(sender, (PlayerInput) packet));
+        } else if (packet instanceof SnapshotAck) {
+            server.runOnSimulationLoop(() -> server.getServerState().onSnapshotAck(sender, (SnapshotAck) packet));
+        } else if (packet instanceof Ping) {
+            server.runOnSimulationLoop(() -> server.getServerState().onPing(sender, (Ping) packet));
+        } else if (packet instanceof Pong) {
+            server.runOnSimulationLoop(() -> server.getServerState().onPong(sender, (Pong) packet));
         }
     }
 }
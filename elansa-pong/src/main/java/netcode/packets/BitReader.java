@@ -0,0 +1,54 @@
+package netcode.packets;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Reads values written by a BitWriter
+ */
+public class BitReader {
+    private ByteBuf in;
+    private long scratch = 0;
+    private int scratchBits = 0;
+
+    /**
+     * Creates a bit reader
+     * @param in the buffer positioned at the first byte written by the BitWriter
+     */
+    public BitReader(ByteBuf in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads a value
+     * @param bits the number of bits the value was written with, at most 32
+     * @return the value with its unused high bits cleared
+     * @throws IndexOutOfBoundsException if the buffer ends before the value does
+     */
+    public long readBits(int bits) {
+        if (bits < 0 || bits > 32) {
+            throw new IllegalArgumentException("Cannot read " + bits + " bits at once");
+        }
+        while (scratchBits < bits) {
+            scratch |= (long) in.readUnsignedByte() << scratchBits;
+            scratchBits += 8;
+        }
+        long value = scratch & ((1L << bits) - 1);
+        scratch >>>= bits;
+        scratchBits -= bits;
+        return value;
+    }
+
+    public double readDouble() {
+        long low = readBits(32);
+        long high = readBits(32);
+        return Double.longBitsToDouble(low | (high << 32));
+    }
+
+    /**
+     * Discards the padding up to the next whole byte
+     */
+    public void align() {
+        scratch = 0;
+        scratchBits = 0;
+    }
+}
@@ -0,0 +1,59 @@
+package netcode.packets;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Writes values of arbitrary bit widths into a buffer, least significant bits first
+ */
+public class BitWriter {
+    private ByteBuf out;
+    private long scratch = 0;
+    private int scratchBits = 0;
+
+    /**
+     * Creates a bit writer
+     * @param out the buffer to append whole bytes to
+     */
+    public BitWriter(ByteBuf out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the lowest bits of a value
+     * @param value the value to write
+     * @param bits the number of bits to write, at most 32
+     */
+    public void writeBits(long value, int bits) {
+        if (bits < 0 || bits > 32) {
+            throw new IllegalArgumentException("Cannot write " + bits + " bits at once");
+        }
+        scratch |= (value & ((1L << bits) - 1)) << scratchBits;
+        scratchBits += bits;
+        while (scratchBits >= 8) {
+            out.writeByte((int) scratch);
+            scratch >>>= 8;
+            scratchBits -= 8;
+        }
+    }
+
+    /**
+     * Writes a double without any loss of precision
+     * @param value the value to write
+     */
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        writeBits(bits, 32);
+        writeBits(bits >>> 32, 32);
+    }
+
+    /**
+     * Pads the bits written so far to a whole byte and writes it
+     */
+    public void flush() {
+        if (scratchBits > 0) {
+            out.writeByte((int) scratch);
+        }
+        scratch = 0;
+        scratchBits = 0;
+    }
+}
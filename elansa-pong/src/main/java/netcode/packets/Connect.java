@@ -2,12 +2,19 @@ package netcode.packets;
 
 public class Connect implements Packet {
     private int udpPort;
+    // Whether the client can take compressed messages on its reliable channel
+    private boolean compressionSupported;
 
-    public Connect(int udpPort) {
+    public Connect(int udpPort, boolean compressionSupported) {
         this.udpPort = udpPort;
+        this.compressionSupported = compressionSupported;
     }
 
     public int getUdpPort() {
         return udpPort;
     }
+
+    public boolean isCompressionSupported() {
+        return compressionSupported;
+    }
 }
@@ -0,0 +1,143 @@
+package netcode.packets;
+
+/**
+ * The mutable state of an entity as carried by a non-critical synchronization.
+ * A state is either full or a delta that only holds the fields that differ from
+ * a baseline the receiver has already acknowledged.
+ */
+public class EntityState {
+    // Marks a state that does not depend on a baseline
+    public static final long NO_BASELINE = -1;
+    // Deltas are limited to what fits in the change mask
+    public static final int MAX_DELTA_FIELDS = 64;
+    // Baselines are sent as an offset from the synchronization's sequence number
+    public static final int MAX_BASELINE_AGE = 255;
+    // Entity ids are sent as unsigned shorts
+    public static final int MAX_ENTITY_ID = 0xFFFF;
+
+    private int id;
+    private int stateSize;
+    private long baselineSequenceNumber;
+    private long changedFields;
+    private double[] values;
+    private int[] valueKinds;
+
+    /**
+     * Creates a full entity state whose values are sent as raw doubles
+     * @param id the id of the entity the state belongs to
+     * @param state the values produced by the entity's writeState
+     */
+    public EntityState(int id, double[] state) {
+        this(id, state.length, NO_BASELINE, -1L, state, null);
+    }
+
+    /**
+     * Creates a full entity state
+     * @param id the id of the entity the state belongs to
+     * @param state the values produced by the entity's writeState
+     * @param fieldKinds the kind of each field as given by Entity.getStateFieldKind
+     */
+    public EntityState(int id, double[] state, int[] fieldKinds) {
+        this(id, state.length, NO_BASELINE, -1L, state, fieldKinds);
+    }
+
+    /**
+     * Creates an entity state
+     * @param id the id of the entity the state belongs to
+     * @param stateSize the number of values in the entity's complete state
+     * @param baselineSequenceNumber the synchronization the delta is relative to or NO_BASELINE
+     * @param changedFields a mask with a bit set for every field held in values
+     * @param values the values of the changed fields in field order
+     * @param valueKinds the kind of each value or null if they are sent as raw doubles
+     */
+    public EntityState(int id, int stateSize, long baselineSequenceNumber, long changedFields, double[] values, int[] valueKinds) {
+        this.id = id;
+        this.stateSize = stateSize;
+        this.baselineSequenceNumber = baselineSequenceNumber;
+        this.changedFields = changedFields;
+        this.values = values;
+        this.valueKinds = valueKinds;
+    }
+
+    /**
+     * Creates the delta between a state and a baseline, falling back to the full state when the
+     * entity has too many fields or its state no longer matches the baseline's layout
+     * @param id the id of the entity the state belongs to
+     * @param state the entity's current state
+     * @param fieldKinds the kind of each field as given by Entity.getStateFieldKind
+     * @param baselineSequenceNumber the synchronization the baseline was sent in
+     * @param baseline the state the receiver acknowledged
+     * @return the entity state to send
+     */
+    public static EntityState delta(int id, double[] state, int[] fieldKinds, long baselineSequenceNumber, double[] baseline) {
+        if (state.length > MAX_DELTA_FIELDS || baseline.length != state.length) {
+            return new EntityState(id, state, fieldKinds);
+        }
+
+        long changedFields = 0;
+        int changedCount = 0;
+        for (int i = 0; i < state.length; i++) {
+            // Compare the bits so that the receiver reconstructs the exact value
+            if (Double.doubleToLongBits(state[i]) != Double.doubleToLongBits(baseline[i])) {
+                changedFields |= 1L << i;
+                changedCount++;
+            }
+        }
+
+        double[] values = new double[changedCount];
+        int[] valueKinds = new int[changedCount];
+        int index = 0;
+        for (int i = 0; i < state.length; i++) {
+            if ((changedFields & (1L << i)) != 0) {
+                values[index] = state[i];
+                valueKinds[index++] = fieldKinds[i];
+            }
+        }
+        return new EntityState(id, state.length, baselineSequenceNumber, changedFields, values, valueKinds);
+    }
+
+    /**
+     * Rebuilds the complete state
+     * @param baseline the state at the baseline sequence number, ignored for a full state
+     * @param state the buffer of length getStateSize to write the complete state into
+     */
+    public void resolve(double[] baseline, double[] state) {
+        if (isFull()) {
+            System.arraycopy(values, 0, state, 0, stateSize);
+            return;
+        }
+
+        int index = 0;
+        for (int i = 0; i < stateSize; i++) {
+            state[i] = (changedFields & (1L << i)) != 0 ? values[index++] : baseline[i];
+        }
+    }
+
+    public boolean isFull() {
+        return baselineSequenceNumber == NO_BASELINE;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getStateSize() {
+        return stateSize;
+    }
+
+    public long getBaselineSequenceNumber() {
+        return baselineSequenceNumber;
+    }
+
+    public long getChangedFields() {
+        return changedFields;
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public int[] getValueKinds() {
+        return valueKinds;
+    }
+}
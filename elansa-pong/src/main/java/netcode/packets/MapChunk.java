@@ -0,0 +1,29 @@
+package netcode.packets;
+
+/**
+ * A piece of the hosted map's file sent over the reliable channel to a client that requested it.
+ * The reliable channel delivers the chunks in order so the client only has to append them.
+ */
+public class MapChunk implements Packet {
+    private int chunkIndex;
+    private int chunkCount;
+    private byte[] data;
+
+    public MapChunk(int chunkIndex, int chunkCount, byte[] data) {
+        this.chunkIndex = chunkIndex;
+        this.chunkCount = chunkCount;
+        this.data = data;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
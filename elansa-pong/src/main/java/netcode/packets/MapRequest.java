@@ -0,0 +1,17 @@
+package netcode.packets;
+
+/**
+ * Sent by a client over TCP when the map the server announced is not in its cache.
+ * The server answers with the map's bytes as MapChunks over the reliable channel.
+ */
+public class MapRequest implements Packet {
+    private byte[] mapHash;
+
+    public MapRequest(byte[] mapHash) {
+        this.mapHash = mapHash;
+    }
+
+    public byte[] getMapHash() {
+        return mapHash;
+    }
+}
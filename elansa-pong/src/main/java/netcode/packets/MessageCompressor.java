@@ -0,0 +1,165 @@
+package netcode.packets;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses large encoded packets for one end of a reliable channel. Packets below the threshold,
+ * such as lives updates, are left alone since deflating them would cost more than it saves, while
+ * critical synchronizations of large maps shrink considerably. A compressed packet is a COMPRESSED
+ * type byte, the length of the original packet and the deflated original. The Deflater and Inflater
+ * are kept for the lifetime of the channel rather than created for every message, and their native
+ * memory is released with close once the channel is no longer used.
+ */
+public class MessageCompressor {
+    // Bounds what a corrupt or hostile length can make the receiver allocate
+    private static final int MAX_DECOMPRESSED_BYTES = 4 * 1024 * 1024;
+
+    private int threshold;
+    private Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private Inflater inflater = new Inflater();
+    private byte[] chunk = new byte[4096];
+
+    private long compressedCount = 0;
+    private long originalBytes = 0;
+    private long compressedBytes = 0;
+    private long compressionNanos = 0;
+    private long decompressionNanos = 0;
+
+    /**
+     * Creates a compressor
+     * @param threshold the size in bytes from which packets are compressed
+     */
+    public MessageCompressor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Compresses an encoded packet if it is large enough and compression makes it smaller
+     * @param encoded the encoded packet
+     * @return the compressed packet or the given one if it was not compressed
+     */
+    public byte[] compress(byte[] encoded) {
+        if (encoded.length < threshold) {
+            return encoded;
+        }
+
+        long start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length / 2 + 5);
+        out.write(PacketCodec.COMPRESSED);
+        out.write(encoded.length >>> 24);
+        out.write(encoded.length >>> 16);
+        out.write(encoded.length >>> 8);
+        out.write(encoded.length);
+        deflater.reset();
+        deflater.setInput(encoded);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.write(chunk, 0, length);
+        }
+        byte[] compressed = out.toByteArray();
+        compressionNanos += System.nanoTime() - start;
+
+        if (compressed.length >= encoded.length) {
+            return encoded;
+        }
+        compressedCount++;
+        originalBytes += encoded.length;
+        compressedBytes += compressed.length;
+        return compressed;
+    }
+
+    /**
+     * Restores a packet compressed by the other end of the channel
+     * @param message the received message
+     * @return the original encoded packet, or the message itself if it was not compressed
+     * @throws IllegalArgumentException if the compressed data is corrupt
+     */
+    public byte[] decompress(byte[] message) {
+        if (message.length == 0 || message[0] != PacketCodec.COMPRESSED) {
+            return message;
+        }
+        if (message.length < 5) {
+            throw new IllegalArgumentException("Compressed packet is truncated");
+        }
+
+        long start = System.nanoTime();
+        int length = ((message[1] & 0xff) << 24) | ((message[2] & 0xff) << 16) | ((message[3] & 0xff) << 8) | (message[4] & 0xff);
+        if (length < 0 || length > MAX_DECOMPRESSED_BYTES) {
+            throw new IllegalArgumentException("Compressed packet is too large: " + length);
+        }
+        byte[] encoded = new byte[length];
+        inflater.reset();
+        inflater.setInput(message, 5, message.length - 5);
+        try {
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int inflated = inflater.inflate(encoded, offset, length - offset);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += inflated;
+            }
+            if (offset != length) {
+                throw new IllegalArgumentException("Compressed packet is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Compressed packet is corrupt", e);
+        } finally {
+            decompressionNanos += System.nanoTime() - start;
+        }
+        compressedCount++;
+        originalBytes += length;
+        compressedBytes += message.length;
+        return encoded;
+    }
+
+    /**
+     * Releases the native memory of the Deflater and Inflater. The compressor cannot be used afterwards.
+     */
+    public void close() {
+        deflater.end();
+        inflater.end();
+    }
+
+    /**
+     * Gets the number of packets compressed or decompressed
+     * @return the number of packets
+     */
+    public long getCompressedCount() {
+        return compressedCount;
+    }
+
+    /**
+     * Gets the size of the compressed packets relative to the originals
+     * @return the ratio or 1 if nothing was compressed yet
+     */
+    public double getCompressionRatio() {
+        return originalBytes == 0 ? 1 : (double) compressedBytes / originalBytes;
+    }
+
+    /**
+     * Gets the time spent compressing, including attempts that did not make the packet smaller
+     * @return the time in nanoseconds
+     */
+    public long getCompressionNanos() {
+        return compressionNanos;
+    }
+
+    /**
+     * Gets the time spent decompressing
+     * @return the time in nanoseconds
+     */
+    public long getDecompressionNanos() {
+        return decompressionNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d packets compressed to %.0f%%, %.2f ms compressing, %.2f ms decompressing",
+                compressedCount, getCompressionRatio() * 100, compressionNanos / 1e6, decompressionNanos / 1e6);
+    }
+}
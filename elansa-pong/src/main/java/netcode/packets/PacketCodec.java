@@ -0,0 +1,606 @@
+package netcode.packets;
+
+import engine.*;
+import game.Ball;
+import game.Obstacle;
+import game.Player;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Encodes packets in a compact binary format.
+ * Every packet starts with a type byte followed by its fields in a fixed order.
+ * Packets clients send over UDP carry their session token right after the type byte.
+ * Decoding stops at the end of the packet so datagrams may be padded.
+ * Entities are written as a tag, their id, their name, their shape and their mutable state.
+ * Critical synchronizations only refer to static entities by id since clients have the map,
+ * while non-critical synchronizations only carry ids and mutable state, which may
+ * be a delta against a baseline the receiver acknowledged. Their values are bit-packed
+ * at the precision of the synchronization's StateQuantizer. A snapshot that does not fit
+ * in one datagram is split into fragments that each carry the tick, their index and the
+ * number of fragments, and each entity's state is byte aligned so it can go in any fragment.
+ */
+public class PacketCodec {
+    // Packet types
+    public static final byte CONNECT = 1;
+    public static final byte READY = 2;
+    public static final byte PLAYER_ASSIGNMENT = 3;
+    public static final byte SYNCHRONIZATION = 4;
+    public static final byte PLAYER_INPUT = 5;
+    public static final byte LIVES_UPDATE = 6;
+    public static final byte PLAYER_ELIMINATED = 7;
+    public static final byte GAME_OVER = 8;
+    public static final byte SNAPSHOT_ACK = 9;
+    public static final byte RELIABLE_BATCH = 10;
+    public static final byte PING = 11;
+    public static final byte PONG = 12;
+    // Only found inside the reliable channel, which inflates it with its MessageCompressor
+    public static final byte COMPRESSED = 13;
+    public static final byte MAP_REQUEST = 14;
+    public static final byte MAP_CHUNK = 15;
+    public static final byte SUPERSEDED = 16;
+    // Only found inside the reliable channel, which joins the pieces of a message too large for one datagram
+    public static final byte MESSAGE_PIECE = 17;
+
+    // Type byte and message count of a reliable batch, then sequence number and length of each message
+    public static final int RELIABLE_BATCH_HEADER_BYTES = 2;
+    public static final int RELIABLE_MESSAGE_HEADER_BYTES = 6;
+    // Type byte, index and number of pieces of a message piece
+    public static final int MESSAGE_PIECE_HEADER_BYTES = 5;
+    // Largest message a reliable batch can carry since its length is written as an unsigned short
+    public static final int MAX_RELIABLE_MESSAGE_BYTES = 0xFFFF;
+
+    // Bytes of a non-critical synchronization before its first entity state
+    static final int FRAGMENT_HEADER_BYTES = 16;
+
+    // Entity types
+    private static final byte BALL = 1;
+    private static final byte PLAYER = 2;
+    private static final byte OBSTACLE = 3;
+
+    // Collider types
+    private static final byte CIRCLE = 1;
+    private static final byte RECTANGLE = 2;
+    private static final byte POLYGON = 3;
+
+    /**
+     * Writes a packet into a buffer
+     * @param packet the packet to encode
+     * @param out the buffer to write into
+     */
+    public static void encode(Packet packet, ByteBuf out) {
+        if (packet instanceof Connect) {
+            out.writeByte(CONNECT);
+            out.writeInt(((Connect) packet).getUdpPort());
+            out.writeBoolean(((Connect) packet).isCompressionSupported());
+        } else if (packet instanceof Ready) {
+            out.writeByte(READY);
+        } else if (packet instanceof PlayerAssignment) {
+            PlayerAssignment assignment = (PlayerAssignment) packet;
+            out.writeByte(PLAYER_ASSIGNMENT);
+            out.writeByte(assignment.getPlayerNumber());
+            out.writeInt(assignment.getSessionToken());
+            writeBytes(assignment.getMapHash(), out);
+            writeEntity(assignment.getPlayer(), out);
+        } else if (packet instanceof Synchronization) {
+            Synchronization synchronization = (Synchronization) packet;
+            out.writeByte(SYNCHRONIZATION);
+            out.writeBoolean(synchronization.isCritical());
+            out.writeLong(synchronization.getSequenceNumber());
+            if (synchronization.isCritical()) {
+                out.writeShort(synchronization.getStaticEntityIds().length);
+                for (int id : synchronization.getStaticEntityIds()) {
+                    out.writeShort(id);
+                }
+                out.writeShort(synchronization.getEntities().size());
+                for (Entity entity : synchronization.getEntities()) {
+                    writeEntity(entity, out);
+                }
+            } else {
+                StateQuantizer quantizer = synchronization.getQuantizer();
+                out.writeByte(synchronization.getFragmentIndex());
+                out.writeByte(synchronization.getFragmentCount());
+                out.writeByte(quantizer.getPositionBits());
+                out.writeByte(quantizer.getVelocityBits());
+                out.writeShort(synchronization.getEntityStates().size());
+                for (EntityState entityState : synchronization.getEntityStates()) {
+                    writeEntityState(entityState, synchronization.getSequenceNumber(), quantizer, out);
+                }
+            }
+        } else if (packet instanceof PlayerInput) {
+            PlayerInput input = (PlayerInput) packet;
+            out.writeByte(PLAYER_INPUT);
+            out.writeInt(input.getSessionToken());
+            out.writeByte(input.getDirection());
+            writeVec2d(input.getPosition(), out);
+            out.writeLong(input.getSequenceNumber());
+        } else if (packet instanceof LivesUpdate) {
+            LivesUpdate livesUpdate = (LivesUpdate) packet;
+            out.writeByte(LIVES_UPDATE);
+            out.writeByte(livesUpdate.getNewLives().length);
+            for (int i = 0; i < livesUpdate.getNewLives().length; i++) {
+                out.writeInt(livesUpdate.getNewLives()[i]);
+                out.writeBoolean(livesUpdate.getActivePlayers()[i]);
+            }
+        } else if (packet instanceof PlayerEliminated) {
+            out.writeByte(PLAYER_ELIMINATED);
+            out.writeByte(((PlayerEliminated) packet).getEliminatedPlayer());
+        } else if (packet instanceof GameOver) {
+            out.writeByte(GAME_OVER);
+            writeString(((GameOver) packet).getMessage(), out);
+        } else if (packet instanceof SnapshotAck) {
+            SnapshotAck ack = (SnapshotAck) packet;
+            out.writeByte(SNAPSHOT_ACK);
+            out.writeInt(ack.getSessionToken());
+            out.writeLong(ack.getLatestSequenceNumber());
+            out.writeInt(ack.getAckBits());
+            out.writeInt(ack.getReliableSequenceNumber());
+            out.writeInt(ack.getReliableAckBits());
+        } else if (packet instanceof ReliableBatch) {
+            ReliableBatch batch = (ReliableBatch) packet;
+            out.writeByte(RELIABLE_BATCH);
+            out.writeByte(batch.getSequenceNumbers().length);
+            for (int i = 0; i < batch.getSequenceNumbers().length; i++) {
+                byte[] message = batch.getEncodedMessages()[i];
+                if (message.length > MAX_RELIABLE_MESSAGE_BYTES) {
+                    throw new IllegalArgumentException("Reliable message of " + message.length + " bytes does not fit in a batch");
+                }
+                out.writeInt(batch.getSequenceNumbers()[i]);
+                out.writeShort(message.length);
+                out.writeBytes(message);
+            }
+        } else if (packet instanceof Ping) {
+            Ping ping = (Ping) packet;
+            out.writeByte(PING);
+            out.writeInt(ping.getSessionToken());
+            out.writeInt(ping.getPingSequenceNumber());
+            out.writeLong(ping.getSendTime());
+        } else if (packet instanceof Pong) {
+            Pong pong = (Pong) packet;
+            out.writeByte(PONG);
+            out.writeInt(pong.getSessionToken());
+            out.writeInt(pong.getPingSequenceNumber());
+            out.writeLong(pong.getPingSendTime());
+            out.writeLong(pong.getReplyTime());
+        } else if (packet instanceof MapRequest) {
+            out.writeByte(MAP_REQUEST);
+            writeBytes(((MapRequest) packet).getMapHash(), out);
+        } else if (packet instanceof MapChunk) {
+            MapChunk chunk = (MapChunk) packet;
+            out.writeByte(MAP_CHUNK);
+            out.writeInt(chunk.getChunkIndex());
+            out.writeInt(chunk.getChunkCount());
+            writeBytes(chunk.getData(), out);
+        } else if (packet instanceof Superseded) {
+            out.writeByte(SUPERSEDED);
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + packet.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a packet from a buffer
+     * @param in the buffer positioned at the start of a packet
+     * @return the decoded packet
+     * @throws IllegalArgumentException if the buffer does not hold a valid packet
+     * @throws IndexOutOfBoundsException if the buffer ends before the packet does
+     */
+    public static Packet decode(ByteBuf in) {
+        byte type = in.readByte();
+        switch (type) {
+            case CONNECT:
+                return new Connect(in.readInt(), in.readBoolean());
+            case READY:
+                return new Ready();
+            case PLAYER_ASSIGNMENT: {
+                int playerNumber = in.readByte();
+                int sessionToken = in.readInt();
+                byte[] mapHash = readBytes(in);
+                Entity player = readEntity(in);
+                if (!(player instanceof Player)) {
+                    throw new IllegalArgumentException("Player assignment does not hold a player");
+                }
+                return new PlayerAssignment(playerNumber, (Player) player, sessionToken, mapHash);
+            }
+            case SYNCHRONIZATION: {
+                boolean critical = in.readBoolean();
+                long sequenceNumber = in.readLong();
+                if (critical) {
+                    int[] staticEntityIds = new int[in.readUnsignedShort()];
+                    for (int i = 0; i < staticEntityIds.length; i++) {
+                        staticEntityIds[i] = in.readUnsignedShort();
+                    }
+                    int count = in.readUnsignedShort();
+                    ArrayList<Entity> entities = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        entities.add(readEntity(in));
+                    }
+                    return new Synchronization(staticEntityIds, entities, sequenceNumber);
+                }
+                int fragmentIndex = in.readUnsignedByte();
+                int fragmentCount = in.readUnsignedByte();
+                if (fragmentIndex >= fragmentCount) {
+                    throw new IllegalArgumentException("Fragment " + fragmentIndex + " of " + fragmentCount + " is out of range");
+                }
+                StateQuantizer quantizer = new StateQuantizer(in.readUnsignedByte(), in.readUnsignedByte());
+                int count = in.readUnsignedShort();
+                ArrayList<EntityState> entityStates = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    entityStates.add(readEntityState(sequenceNumber, quantizer, in));
+                }
+                return Synchronization.fromStates(entityStates, sequenceNumber, fragmentIndex, fragmentCount, quantizer);
+            }
+            case PLAYER_INPUT: {
+                int sessionToken = in.readInt();
+                int direction = in.readByte();
+                Vec2d position = readVec2d(in);
+                return new PlayerInput(sessionToken, direction, position, in.readLong());
+            }
+            case LIVES_UPDATE: {
+                int count = in.readUnsignedByte();
+                int[] newLives = new int[count];
+                boolean[] activePlayers = new boolean[count];
+                for (int i = 0; i < count; i++) {
+                    newLives[i] = in.readInt();
+                    activePlayers[i] = in.readBoolean();
+                }
+                return new LivesUpdate(newLives, activePlayers);
+            }
+            case PLAYER_ELIMINATED:
+                return new PlayerEliminated(in.readByte());
+            case GAME_OVER:
+                return new GameOver(readString(in));
+            case SNAPSHOT_ACK:
+                return new SnapshotAck(in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readInt());
+            case RELIABLE_BATCH: {
+                int count = in.readUnsignedByte();
+                int[] sequenceNumbers = new int[count];
+                byte[][] encodedMessages = new byte[count][];
+                for (int i = 0; i < count; i++) {
+                    sequenceNumbers[i] = in.readInt();
+                    encodedMessages[i] = new byte[in.readUnsignedShort()];
+                    in.readBytes(encodedMessages[i]);
+                }
+                return new ReliableBatch(sequenceNumbers, encodedMessages);
+            }
+            case PING:
+                return new Ping(in.readInt(), in.readInt(), in.readLong());
+            case PONG:
+                return new Pong(in.readInt(), in.readInt(), in.readLong(), in.readLong());
+            case MAP_REQUEST:
+                return new MapRequest(readBytes(in));
+            case MAP_CHUNK: {
+                int chunkIndex = in.readInt();
+                int chunkCount = in.readInt();
+                if (chunkIndex < 0 || chunkIndex >= chunkCount) {
+                    throw new IllegalArgumentException("Map chunk " + chunkIndex + " of " + chunkCount + " is out of range");
+                }
+                return new MapChunk(chunkIndex, chunkCount, readBytes(in));
+            }
+            case SUPERSEDED:
+                return new Superseded();
+            default:
+                throw new IllegalArgumentException("Unknown packet type " + type);
+        }
+    }
+
+    /**
+     * Encodes the static entities of a map, which is what clients download instead of the map file
+     * so that they never deserialize Java objects sent by a server
+     * @param entities the entities, each with its id
+     * @param out the buffer to write to
+     */
+    public static void encodeEntities(ArrayList<Entity> entities, ByteBuf out) {
+        if (entities.size() > 0xFFFF) {
+            throw new IllegalArgumentException("Cannot encode " + entities.size() + " entities");
+        }
+        out.writeShort(entities.size());
+        for (Entity entity : entities) {
+            writeEntity(entity, out);
+        }
+    }
+
+    /**
+     * Decodes entities written by encodeEntities
+     * @param in the buffer to read from
+     * @return the entities with their ids
+     */
+    public static ArrayList<Entity> decodeEntities(ByteBuf in) {
+        int count = in.readUnsignedShort();
+        ArrayList<Entity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(readEntity(in));
+        }
+        return entities;
+    }
+
+    /**
+     * Helper method to write an entity's id followed by its name, which is only kept for display
+     */
+    private static void writeEntityId(Entity entity, ByteBuf out) {
+        if (entity.getId() < 0 || entity.getId() > EntityState.MAX_ENTITY_ID) {
+            throw new IllegalArgumentException("Entity " + entity.getName() + " has no id");
+        }
+        out.writeShort(entity.getId());
+        writeString(entity.getName(), out);
+    }
+
+    /**
+     * Helper method to write an entity's shape and state
+     */
+    private static void writeEntity(Entity entity, ByteBuf out) {
+        if (entity instanceof Ball) {
+            out.writeByte(BALL);
+            writeEntityId(entity, out);
+            out.writeDouble(((CircleCollider) entity.getColliders().get(0)).getRadius());
+        } else if (entity instanceof Player) {
+            Player player = (Player) entity;
+            RectangleCollider collider = (RectangleCollider) player.getColliders().get(0);
+            out.writeByte(PLAYER);
+            writeEntityId(player, out);
+            out.writeDouble(collider.getWidth());
+            out.writeDouble(collider.getHeight());
+            writeVec2d(player.getPositiveDirection(), out);
+            out.writeInt(player.getDirectionKeyPositive());
+            out.writeInt(player.getDirectionKeyNegative());
+            out.writeDouble(player.getMoveSpeed());
+        } else if (entity instanceof Obstacle) {
+            Obstacle obstacle = (Obstacle) entity;
+            out.writeByte(OBSTACLE);
+            writeEntityId(obstacle, out);
+            for (int channel : obstacle.getColorRgb()) {
+                out.writeByte(channel);
+            }
+            out.writeBoolean(obstacle.isVisible());
+            out.writeByte(obstacle.getColliders().size());
+            for (Collider collider : obstacle.getColliders()) {
+                writeColliderShape(collider, out);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + entity.getClass().getName());
+        }
+        writeState(entity, out);
+    }
+
+    /**
+     * Helper method to read an entity written by writeEntity
+     */
+    private static Entity readEntity(ByteBuf in) {
+        byte type = in.readByte();
+        int id = in.readUnsignedShort();
+        String name = readString(in);
+        Entity entity;
+        switch (type) {
+            case BALL:
+                entity = new Ball(name, new Vec2d(0, 0), in.readDouble());
+                break;
+            case PLAYER: {
+                double width = in.readDouble();
+                double height = in.readDouble();
+                Vec2d positiveDirection = readVec2d(in);
+                int directionKeyPositive = in.readInt();
+                int directionKeyNegative = in.readInt();
+                double moveSpeed = in.readDouble();
+                entity = new Player(
+                        name,
+                        new Vec2d(0, 0),
+                        width,
+                        height,
+                        positiveDirection,
+                        directionKeyPositive,
+                        directionKeyNegative,
+                        moveSpeed
+                );
+                break;
+            }
+            case OBSTACLE: {
+                int[] colorRgb = {in.readUnsignedByte(), in.readUnsignedByte(), in.readUnsignedByte()};
+                boolean isVisible = in.readBoolean();
+                Collider[] colliders = new Collider[in.readUnsignedByte()];
+                for (int i = 0; i < colliders.length; i++) {
+                    colliders[i] = readColliderShape(in);
+                }
+                // Triggers only run on the server
+                entity = new Obstacle(name, colliders, colorRgb, isVisible, null);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown entity type " + type);
+        }
+
+        double[] state = readState(in);
+        if (state.length != entity.getStateSize()) {
+            throw new IllegalArgumentException("State does not match entity " + name);
+        }
+        entity.setId(id);
+        entity.readState(state, 0);
+        return entity;
+    }
+
+    /**
+     * Helper method to write the shape of a collider. Its position is part of the entity's state.
+     */
+    private static void writeColliderShape(Collider collider, ByteBuf out) {
+        if (collider instanceof CircleCollider) {
+            out.writeByte(CIRCLE);
+            out.writeDouble(((CircleCollider) collider).getRadius());
+        } else if (collider instanceof RectangleCollider) {
+            RectangleCollider rectangle = (RectangleCollider) collider;
+            out.writeByte(RECTANGLE);
+            out.writeDouble(rectangle.getWidth());
+            out.writeDouble(rectangle.getHeight());
+            out.writeDouble(rectangle.getAngle());
+        } else if (collider instanceof ConvexPolygonCollider) {
+            Vec2d[] offsets = ((ConvexPolygonCollider) collider).getOffsets();
+            out.writeByte(POLYGON);
+            out.writeByte(offsets.length);
+            for (Vec2d offset : offsets) {
+                writeVec2d(offset, out);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + collider.getClass().getName());
+        }
+    }
+
+    /**
+     * Helper method to read a collider written by writeColliderShape. The collider is placed at the origin.
+     */
+    private static Collider readColliderShape(ByteBuf in) {
+        byte type = in.readByte();
+        switch (type) {
+            case CIRCLE:
+                return new CircleCollider(new Vec2d(0, 0), in.readDouble());
+            case RECTANGLE:
+                return new RectangleCollider(new Vec2d(0, 0), in.readDouble(), in.readDouble(), in.readDouble());
+            case POLYGON: {
+                Vec2d[] offsets = new Vec2d[in.readUnsignedByte()];
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = readVec2d(in);
+                }
+                return new ConvexPolygonCollider(new Vec2d(0, 0), offsets);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown collider type " + type);
+        }
+    }
+
+    /**
+     * Helper method to write an entity state as its id, its size, the age of its baseline
+     * (0 for a full state), a change mask for deltas and then its values bit-packed, each
+     * prefixed by the 2 bit kind it is encoded as
+     */
+    static void writeEntityState(EntityState entityState, long sequenceNumber, StateQuantizer quantizer, ByteBuf out) {
+        out.writeShort(entityState.getId());
+        out.writeByte(entityState.getStateSize());
+        if (entityState.isFull()) {
+            out.writeByte(0);
+        } else {
+            long age = sequenceNumber - entityState.getBaselineSequenceNumber();
+            if (age < 1 || age > EntityState.MAX_BASELINE_AGE) {
+                throw new IllegalArgumentException("Baseline of " + entityState.getId() + " is out of range");
+            }
+            out.writeByte((int) age);
+            for (int i = 0; i < getMaskLength(entityState.getStateSize()); i++) {
+                out.writeByte((int) (entityState.getChangedFields() >>> (8 * i)));
+            }
+        }
+
+        BitWriter bits = new BitWriter(out);
+        double[] values = entityState.getValues();
+        int[] valueKinds = entityState.getValueKinds();
+        for (int i = 0; i < values.length; i++) {
+            int kind = valueKinds == null ? Entity.STATE_OTHER : valueKinds[i];
+            int encoding = quantizer.getEncoding(kind, values[i]);
+            bits.writeBits(encoding, 2);
+            if (encoding == Entity.STATE_OTHER) {
+                bits.writeDouble(values[i]);
+            } else {
+                bits.writeBits(quantizer.quantize(encoding, values[i]), quantizer.getBits(encoding));
+            }
+        }
+        bits.flush();
+    }
+
+    /**
+     * Helper method to read an entity state written by writeEntityState
+     */
+    private static EntityState readEntityState(long sequenceNumber, StateQuantizer quantizer, ByteBuf in) {
+        int id = in.readUnsignedShort();
+        int stateSize = in.readUnsignedByte();
+        int age = in.readUnsignedByte();
+        long baselineSequenceNumber = EntityState.NO_BASELINE;
+        long changedFields = -1L;
+        int count = stateSize;
+        if (age != 0) {
+            if (stateSize > EntityState.MAX_DELTA_FIELDS) {
+                throw new IllegalArgumentException("Delta of " + id + " has too many fields");
+            }
+            baselineSequenceNumber = sequenceNumber - age;
+            changedFields = 0;
+            for (int i = 0; i < getMaskLength(stateSize); i++) {
+                changedFields |= (long) in.readUnsignedByte() << (8 * i);
+            }
+            count = Long.bitCount(changedFields);
+        }
+
+        BitReader bits = new BitReader(in);
+        double[] values = new double[count];
+        int[] valueKinds = new int[count];
+        for (int i = 0; i < count; i++) {
+            int encoding = (int) bits.readBits(2);
+            valueKinds[i] = encoding;
+            if (encoding == Entity.STATE_OTHER) {
+                values[i] = bits.readDouble();
+            } else {
+                values[i] = quantizer.dequantize(encoding, bits.readBits(quantizer.getBits(encoding)));
+            }
+        }
+        bits.align();
+        return new EntityState(id, stateSize, baselineSequenceNumber, changedFields, values, valueKinds);
+    }
+
+    /**
+     * Helper method to get the number of bytes needed for the change mask of a state
+     */
+    private static int getMaskLength(int stateSize) {
+        return (stateSize + 7) / 8;
+    }
+
+    /**
+     * Helper method to write an entity's mutable state prefixed by its length
+     */
+    private static void writeState(Entity entity, ByteBuf out) {
+        double[] state = new double[entity.getStateSize()];
+        entity.writeState(state, 0);
+        out.writeByte(state.length);
+        for (double value : state) {
+            out.writeDouble(value);
+        }
+    }
+
+    /**
+     * Helper method to read a state written by writeState
+     */
+    private static double[] readState(ByteBuf in) {
+        double[] state = new double[in.readUnsignedByte()];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = in.readDouble();
+        }
+        return state;
+    }
+
+    private static void writeVec2d(Vec2d vector, ByteBuf out) {
+        out.writeDouble(vector.getX());
+        out.writeDouble(vector.getY());
+    }
+
+    private static Vec2d readVec2d(ByteBuf in) {
+        return new Vec2d(in.readDouble(), in.readDouble());
+    }
+
+    private static void writeString(String string, ByteBuf out) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = in.readUnsignedShort();
+        String string = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return string;
+    }
+
+    private static void writeBytes(byte[] bytes, ByteBuf out) {
+        out.writeShort(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuf in) {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readBytes(bytes);
+        return bytes;
+    }
+}
@@ -1,8 +1,10 @@
 package netcode.packets;
 
+import game.GameSettings;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
 
 import java.util.List;
 
@@ -14,22 +16,24 @@ public class PacketDecoder extends ByteToMessageDecoder {
             return;
         }
 
-        byteBuf.markReaderIndex();
-        int dataLength = byteBuf.readInt();
-
-        if (byteBuf.readableBytes() < dataLength) {
-            // The entire payload has not arrived. Reset the reader.
-            byteBuf.resetReaderIndex();
+        // Peek at the length so nothing is consumed until the whole frame has arrived
+        int dataLength = byteBuf.getInt(byteBuf.readerIndex());
+        if (dataLength < 0 || dataLength > GameSettings.MAX_TCP_FRAME_BYTES) {
+            // The stream cannot be resynchronized, so drop what was received and let the handler close the channel
+            byteBuf.skipBytes(byteBuf.readableBytes());
+            throw new CorruptedFrameException("Invalid TCP frame length: " + dataLength);
+        }
+        if (byteBuf.readableBytes() - 4 < dataLength) {
             return;
         }
 
-        // We can deserialize the packet
-        byte[] bytes = new byte[dataLength];
-        byteBuf.readBytes(bytes);
-        Object deserializedObj = Serializer.fromBytes(bytes);
+        // We can deserialize the packet straight from the received bytes
+        byteBuf.skipBytes(4);
+        ByteBuf frame = byteBuf.readSlice(dataLength);
+        Packet packet = Serializer.fromBuffer(frame);
         // Do not attempt to decode
-        if (deserializedObj != null) {
-            list.add(deserializedObj);
+        if (packet != null) {
+            list.add(packet);
         }
     }
 }
@@ -7,10 +7,11 @@ import io.netty.handler.codec.MessageToByteEncoder;
 public class PacketEncoder extends MessageToByteEncoder<Packet> {
     @Override
     protected void encode(ChannelHandlerContext channelHandlerContext, Packet packet, ByteBuf byteBuf) throws Exception {
-        // We encode a packet as a byte stream by putting the data length and then the data
-        byte[] bytes = Serializer.getBytes(packet);
-        int dataLength = bytes.length;
-        byteBuf.writeInt(dataLength);
-        byteBuf.writeBytes(bytes);
+        // We encode a packet as a byte stream by putting the data length and then the data.
+        // The data is written in place and the length filled in once it is known.
+        int lengthIndex = byteBuf.writerIndex();
+        byteBuf.writeInt(0);
+        PacketCodec.encode(packet, byteBuf);
+        byteBuf.setInt(lengthIndex, byteBuf.writerIndex() - lengthIndex - 4);
     }
 }
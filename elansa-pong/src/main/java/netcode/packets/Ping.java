@@ -0,0 +1,29 @@
+package netcode.packets;
+
+/**
+ * Sent periodically by both ends over UDP to measure the connection. The receiver answers
+ * right away with a Pong echoing the ping's sequence number and send time.
+ */
+public class Ping implements Packet {
+    private int sessionToken;
+    private int pingSequenceNumber;
+    private long sendTime;
+
+    public Ping(int sessionToken, int pingSequenceNumber, long sendTime) {
+        this.sessionToken = sessionToken;
+        this.pingSequenceNumber = pingSequenceNumber;
+        this.sendTime = sendTime;
+    }
+
+    public int getSessionToken() {
+        return sessionToken;
+    }
+
+    public int getPingSequenceNumber() {
+        return pingSequenceNumber;
+    }
+
+    public long getSendTime() {
+        return sendTime;
+    }
+}
@@ -5,10 +5,21 @@ import game.Player;
 public class PlayerAssignment implements Packet {
     private int playerNumber;
     private Player player;
+    private int sessionToken;
+    private byte[] mapHash;
 
-    public PlayerAssignment(int playerNumber, Player player) {
+    /**
+     * Creates a player assignment
+     * @param playerNumber the player the client controls
+     * @param player the player's entity
+     * @param sessionToken the token the client must put in every packet it sends over UDP
+     * @param mapHash the SHA-256 hash of the hosted map's file, which the client loads or requests by it
+     */
+    public PlayerAssignment(int playerNumber, Player player, int sessionToken, byte[] mapHash) {
         this.playerNumber = playerNumber;
         this.player = player;
+        this.sessionToken = sessionToken;
+        this.mapHash = mapHash;
     }
 
     public int getPlayerNumber() {
@@ -18,4 +29,12 @@ public class PlayerAssignment implements Packet {
     public Player getPlayer() {
         return player;
     }
+
+    public int getSessionToken() {
+        return sessionToken;
+    }
+
+    public byte[] getMapHash() {
+        return mapHash;
+    }
 }
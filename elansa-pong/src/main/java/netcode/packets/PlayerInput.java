@@ -3,16 +3,22 @@ package netcode.packets;
 import engine.Vec2d;
 
 public class PlayerInput implements Packet {
+    private int sessionToken;
     private int direction;
     private Vec2d position;
     private long sequenceNumber;
 
-    public PlayerInput(int direction, Vec2d position, long sequenceNumber) {
+    public PlayerInput(int sessionToken, int direction, Vec2d position, long sequenceNumber) {
+        this.sessionToken = sessionToken;
         this.direction = direction;
         this.position = position;
         this.sequenceNumber = sequenceNumber;
     }
 
+    public int getSessionToken() {
+        return sessionToken;
+    }
+
     public int getDirection() {
         return direction;
     }
@@ -0,0 +1,35 @@
+package netcode.packets;
+
+/**
+ * The answer to a Ping. Besides echoing the ping it carries the responder's clock at the
+ * time of the reply so that the pinging end can estimate the offset between the two clocks.
+ */
+public class Pong implements Packet {
+    private int sessionToken;
+    private int pingSequenceNumber;
+    private long pingSendTime;
+    private long replyTime;
+
+    public Pong(int sessionToken, int pingSequenceNumber, long pingSendTime, long replyTime) {
+        this.sessionToken = sessionToken;
+        this.pingSequenceNumber = pingSequenceNumber;
+        this.pingSendTime = pingSendTime;
+        this.replyTime = replyTime;
+    }
+
+    public int getSessionToken() {
+        return sessionToken;
+    }
+
+    public int getPingSequenceNumber() {
+        return pingSequenceNumber;
+    }
+
+    public long getPingSendTime() {
+        return pingSendTime;
+    }
+
+    public long getReplyTime() {
+        return replyTime;
+    }
+}
@@ -0,0 +1,30 @@
+package netcode.packets;
+
+/**
+ * Carries messages of the reliable ordered channel over UDP. Every message has its own sequence
+ * number so that the receiver can put them back in order and acknowledge them individually.
+ * Messages stay encoded so that the sender encodes them once however often they are resent
+ * and the receiver only decodes the ones it has not seen yet.
+ */
+public class ReliableBatch implements Packet {
+    private int[] sequenceNumbers;
+    private byte[][] encodedMessages;
+
+    /**
+     * Creates a batch of messages
+     * @param sequenceNumbers the sequence number of each message
+     * @param encodedMessages each message as encoded by PacketCodec
+     */
+    public ReliableBatch(int[] sequenceNumbers, byte[][] encodedMessages) {
+        this.sequenceNumbers = sequenceNumbers;
+        this.encodedMessages = encodedMessages;
+    }
+
+    public int[] getSequenceNumbers() {
+        return sequenceNumbers;
+    }
+
+    public byte[][] getEncodedMessages() {
+        return encodedMessages;
+    }
+}
@@ -1,83 +1,99 @@
 package netcode.packets;
 
+import engine.Entity;
 import game.AbstractLocalGame;
-import game.GameSettings;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.socket.DatagramPacket;
-import org.apache.commons.io.serialization.ValidatingObjectInputStream;
 
 import java.io.*;
 import java.net.InetSocketAddress;
-import java.util.Arrays;
+import java.util.ArrayList;
 
 public class Serializer {
     /**
-     * Helper method to convert a serializable object to an array of bytes
-     * @param object the object to serialize
-     * @return the serialized object as a byte array
+     * Helper method to encode a packet as an array of bytes
+     * @param packet the packet to encode
+     * @return the encoded packet as a byte array
      */
-    public static <T extends Serializable> byte[] getBytes(T object) {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ObjectOutputStream output;
+    public static byte[] getBytes(Packet packet) {
+        ByteBuf buffer = Unpooled.buffer();
         try {
-            output = new ObjectOutputStream(outputStream);
-            output.writeObject(object);
-            output.flush();
-            return outputStream.toByteArray();
-        } catch (Exception e) {
-            e.printStackTrace();
+            PacketCodec.encode(packet, buffer);
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+            return bytes;
         } finally {
-            try {
-                outputStream.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            buffer.release();
         }
-        return null;
     }
 
     /**
-     * Helper method to deserialized a byte array into an object
-     * @param bytes the byte array of the serialized object
-     * @return the deserialized object or null if serialization fails
+     * Helper method to decode a byte array into a packet
+     * @param bytes the byte array of the encoded packet
+     * @return the decoded packet or null if decoding fails
      */
-    public static Object fromBytes(byte[] bytes) {
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
-        ValidatingObjectInputStream input = null;
-        try {
-            input = new ValidatingObjectInputStream(inputStream);
-            input.accept(GameSettings.SERIALIZABLE_WHITELIST);
+    public static Packet fromBytes(byte[] bytes) {
+        return fromBuffer(Unpooled.wrappedBuffer(bytes));
+    }
 
-            return input.readObject();
+    /**
+     * Helper method to decode a packet straight from a buffer without copying it
+     * @param buffer the buffer holding the encoded packet, which is read from but not released
+     * @return the decoded packet or null if decoding fails
+     */
+    public static Packet fromBuffer(ByteBuf buffer) {
+        try {
+            return PacketCodec.decode(buffer);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            try {
-                if (input != null) {
-                    input.close();
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
         }
         return null;
     }
 
+    /**
+     * Helper method to encode the static entities of a map as an array of bytes
+     * @param staticEntities the map's static entities
+     * @return the encoded entities
+     */
+    public static byte[] getStaticEntityBytes(ArrayList<Entity> staticEntities) {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            PacketCodec.encodeEntities(staticEntities, buffer);
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+            return bytes;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Helper method to decode the static entities of a map
+     * @param bytes the entities as encoded by getStaticEntityBytes
+     * @return the entities
+     * @throws IllegalArgumentException if the bytes are not a valid encoding
+     */
+    public static ArrayList<Entity> readStaticEntities(byte[] bytes) {
+        try {
+            return PacketCodec.decodeEntities(Unpooled.wrappedBuffer(bytes));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Static entities are truncated", e);
+        }
+    }
+
     /**
      * Helper method to send a packet over UDP
      * @param udpChannel the UDP channel to send the packet over
-     * @param dstAddr the destination address
-     * @param dstPort the destination port
+     * @param recipient the resolved destination
      * @param packet the packet to send
      */
-    public static void sendPacketUdp(Channel udpChannel, String dstAddr, int dstPort, Packet packet) {
-        byte[] bytes = Serializer.getBytes(packet);
-        ByteBuf buffer = udpChannel.alloc().buffer(bytes.length);
-        buffer.writeBytes(bytes);
-
-        DatagramPacket datagram = new DatagramPacket(buffer, new InetSocketAddress(dstAddr, dstPort));
+    public static void sendPacketUdp(Channel udpChannel, InetSocketAddress recipient, Packet packet) {
+        ByteBuf buffer = encodeDirect(udpChannel.alloc(), packet);
+        DatagramPacket datagram = new DatagramPacket(buffer, recipient);
         udpChannel.writeAndFlush(datagram)
         .addListener((ChannelFutureListener) f -> {
             if (!f.isSuccess()) {
@@ -87,16 +103,34 @@ public class Serializer {
     }
 
     /**
-     * Helper method to decode a received UDP datagram into a packet
+     * Helper method to encode a packet into a pooled direct buffer
+     * @param allocator the allocator of the channel the packet will be sent over
+     * @param packet the packet to encode
+     * @return the encoded packet, which the caller must release
+     */
+    public static ByteBuf encodeDirect(ByteBufAllocator allocator, Packet packet) {
+        ByteBuf buffer = allocator.directBuffer();
+        try {
+            PacketCodec.encode(packet, buffer);
+        } catch (RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * Helper method to decode a received UDP datagram into a packet. Nothing is printed for a
+     * corrupt datagram since anyone can send them and the receiver counts them instead.
      * @param datagram the received datagram
-     * @return the decoded packet
+     * @return the decoded packet or null if decoding fails
      */
     public static Packet decodeUdpDatagram(DatagramPacket datagram) {
-        ByteBuf buffer = datagram.content();
-        byte[] bytes = new byte[buffer.readableBytes()];
-        buffer.readBytes(bytes);
-        Object obj = Serializer.fromBytes(bytes);
-        return (Packet) Serializer.fromBytes(bytes);
+        try {
+            return PacketCodec.decode(datagram.content());
+        } catch (RuntimeException e) {
+            return null;
+        }
     }
 
     /**
@@ -120,4 +154,17 @@ public class Serializer {
             }
         }
     }
+
+    /**
+     * Helper method to read an exported game from the contents of its file
+     * @param gameMap the bytes of the exported game
+     * @return the decoded game
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static AbstractLocalGame readGameMap(byte[] gameMap) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(gameMap))) {
+            return (AbstractLocalGame) objectInputStream.readObject();
+        }
+    }
 }
@@ -0,0 +1,45 @@
+package netcode.packets;
+
+/**
+ * Sent by clients to acknowledge the non-critical synchronizations they received.
+ * Each bit i of the ack bits acknowledges the synchronization numbered latestSequenceNumber - 1 - i
+ * so that a single lost acknowledgement does not hold back the server's baselines.
+ * It also acknowledges the reliable channel: every message up to the reliable sequence number
+ * was delivered and bit i of the reliable ack bits acknowledges message reliableSequenceNumber + 2 + i,
+ * which arrived ahead of a missing one.
+ */
+public class SnapshotAck implements Packet {
+    private int sessionToken;
+    private long latestSequenceNumber;
+    private int ackBits;
+    private int reliableSequenceNumber;
+    private int reliableAckBits;
+
+    public SnapshotAck(int sessionToken, long latestSequenceNumber, int ackBits, int reliableSequenceNumber, int reliableAckBits) {
+        this.sessionToken = sessionToken;
+        this.latestSequenceNumber = latestSequenceNumber;
+        this.ackBits = ackBits;
+        this.reliableSequenceNumber = reliableSequenceNumber;
+        this.reliableAckBits = reliableAckBits;
+    }
+
+    public int getSessionToken() {
+        return sessionToken;
+    }
+
+    public long getLatestSequenceNumber() {
+        return latestSequenceNumber;
+    }
+
+    public int getAckBits() {
+        return ackBits;
+    }
+
+    public int getReliableSequenceNumber() {
+        return reliableSequenceNumber;
+    }
+
+    public int getReliableAckBits() {
+        return reliableAckBits;
+    }
+}
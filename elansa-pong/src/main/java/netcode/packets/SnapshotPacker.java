@@ -0,0 +1,81 @@
+package netcode.packets;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.ArrayList;
+
+/**
+ * Splits the entity states of a snapshot into as few fragments as possible, each fitting in
+ * a datagram of the configured size. States are kept in order and never split, so a state
+ * larger than a datagram is sent in a fragment of its own.
+ */
+public class SnapshotPacker {
+    // Receivers track the fragments of a snapshot in a 64 bit mask
+    public static final int MAX_FRAGMENTS = 64;
+
+    private int maxDatagramBytes;
+    // Reused to measure the encoded size of each state
+    private ByteBuf scratch = Unpooled.buffer();
+
+    /**
+     * Creates a packer
+     * @param maxDatagramBytes the largest datagram a fragment may fill
+     */
+    public SnapshotPacker(int maxDatagramBytes) {
+        this.maxDatagramBytes = maxDatagramBytes;
+    }
+
+    /**
+     * Gets the number of bytes an entity state takes in a fragment
+     * @param entityState the state
+     * @param sequenceNumber the tick the snapshot was taken on
+     * @param quantizer the precision the state is sent with
+     * @return the number of bytes
+     */
+    public int measure(EntityState entityState, long sequenceNumber, StateQuantizer quantizer) {
+        scratch.clear();
+        PacketCodec.writeEntityState(entityState, sequenceNumber, quantizer, scratch);
+        return scratch.readableBytes();
+    }
+
+    /**
+     * Gets the number of bytes a fragment takes before its first state
+     * @return the number of bytes
+     */
+    public static int getFragmentHeaderBytes() {
+        return PacketCodec.FRAGMENT_HEADER_BYTES;
+    }
+
+    /**
+     * Packs the states of a snapshot into fragments
+     * @param entityStates the states to send
+     * @param sequenceNumber the tick the snapshot was taken on
+     * @param quantizer the precision the states are sent with
+     * @return the fragments in order, at least one even when there are no states
+     */
+    public ArrayList<Synchronization> pack(ArrayList<EntityState> entityStates, long sequenceNumber, StateQuantizer quantizer) {
+        ArrayList<ArrayList<EntityState>> fragmentStates = new ArrayList<>();
+        ArrayList<EntityState> current = new ArrayList<>();
+        int currentBytes = PacketCodec.FRAGMENT_HEADER_BYTES;
+        for (EntityState entityState : entityStates) {
+            int stateBytes = measure(entityState, sequenceNumber, quantizer);
+            // The last fragment takes whatever is left once the fragment limit is reached
+            if (!current.isEmpty() && currentBytes + stateBytes > maxDatagramBytes
+                    && fragmentStates.size() < MAX_FRAGMENTS - 1) {
+                fragmentStates.add(current);
+                current = new ArrayList<>();
+                currentBytes = PacketCodec.FRAGMENT_HEADER_BYTES;
+            }
+            current.add(entityState);
+            currentBytes += stateBytes;
+        }
+        fragmentStates.add(current);
+
+        ArrayList<Synchronization> fragments = new ArrayList<>(fragmentStates.size());
+        for (int i = 0; i < fragmentStates.size(); i++) {
+            fragments.add(Synchronization.fromStates(fragmentStates.get(i), sequenceNumber, i, fragmentStates.size(), quantizer));
+        }
+        return fragments;
+    }
+}
@@ -0,0 +1,170 @@
+package netcode.packets;
+
+import engine.Entity;
+
+/**
+ * Maps the fields of an entity's state onto fixed-point integers for non-critical synchronizations.
+ * Positions are quantized over [POSITION_MIN, POSITION_MAX] and velocities over
+ * [-VELOCITY_LIMIT, VELOCITY_LIMIT], each step being the range divided by 2^bits - 1, so
+ * the round trip error of a value is at most half a step. With 16 bits that is below
+ * 3.9e-5 for positions and 6.2e-5 for velocities, well under a pixel for a unit-square arena
+ * rendered at a few thousand pixels. Directions take 2 bits and are exact. Values outside
+ * these ranges are sent as raw doubles so they are never clamped.
+ */
+public class StateQuantizer {
+    // Covers the arena and balls that have left it but not yet respawned
+    public static final double POSITION_MIN = -2.0;
+    public static final double POSITION_MAX = 3.0;
+    public static final double VELOCITY_LIMIT = 4.0;
+    private static final int DIRECTION_BITS = 2;
+
+    private final int positionBits;
+    private final int velocityBits;
+
+    /**
+     * Creates a quantizer
+     * @param positionBits the number of bits per position value, between 1 and 32
+     * @param velocityBits the number of bits per velocity value, between 1 and 32
+     */
+    public StateQuantizer(int positionBits, int velocityBits) {
+        if (positionBits < 1 || positionBits > 32 || velocityBits < 1 || velocityBits > 32) {
+            throw new IllegalArgumentException("Precision must be between 1 and 32 bits");
+        }
+        this.positionBits = positionBits;
+        this.velocityBits = velocityBits;
+    }
+
+    /**
+     * Picks how a value is encoded
+     * @param kind the kind of the field as given by Entity.getStateFieldKind
+     * @param value the value of the field
+     * @return the kind to encode the value as, Entity.STATE_OTHER meaning a raw double
+     */
+    public int getEncoding(int kind, double value) {
+        switch (kind) {
+            case Entity.STATE_POSITION:
+                return value >= POSITION_MIN && value <= POSITION_MAX ? kind : Entity.STATE_OTHER;
+            case Entity.STATE_VELOCITY:
+                return value >= -VELOCITY_LIMIT && value <= VELOCITY_LIMIT ? kind : Entity.STATE_OTHER;
+            case Entity.STATE_DIRECTION:
+                return value == -1 || value == 0 || value == 1 ? kind : Entity.STATE_OTHER;
+            default:
+                return Entity.STATE_OTHER;
+        }
+    }
+
+    /**
+     * Gets the number of bits an encoding other than a raw double takes
+     * @param encoding the encoding returned by getEncoding
+     * @return the number of bits
+     */
+    public int getBits(int encoding) {
+        switch (encoding) {
+            case Entity.STATE_POSITION:
+                return positionBits;
+            case Entity.STATE_VELOCITY:
+                return velocityBits;
+            case Entity.STATE_DIRECTION:
+                return DIRECTION_BITS;
+            default:
+                throw new IllegalArgumentException("Encoding " + encoding + " is not quantized");
+        }
+    }
+
+    /**
+     * Converts a value to its fixed-point representation
+     * @param encoding the encoding returned by getEncoding for the value
+     * @param value the value
+     * @return the quantized value which fits in getBits(encoding) bits
+     */
+    public long quantize(int encoding, double value) {
+        switch (encoding) {
+            case Entity.STATE_POSITION:
+                return Math.round((value - POSITION_MIN) / (POSITION_MAX - POSITION_MIN) * getSteps(positionBits));
+            case Entity.STATE_VELOCITY:
+                return Math.round((value + VELOCITY_LIMIT) / (2 * VELOCITY_LIMIT) * getSteps(velocityBits));
+            case Entity.STATE_DIRECTION:
+                return (long) value + 1;
+            default:
+                throw new IllegalArgumentException("Encoding " + encoding + " is not quantized");
+        }
+    }
+
+    /**
+     * Converts a fixed-point representation back to a value
+     * @param encoding the encoding the value was quantized with
+     * @param quantized the quantized value
+     * @return the value the receiver sees
+     */
+    public double dequantize(int encoding, long quantized) {
+        switch (encoding) {
+            case Entity.STATE_POSITION:
+                return POSITION_MIN + quantized * (POSITION_MAX - POSITION_MIN) / getSteps(positionBits);
+            case Entity.STATE_VELOCITY:
+                return -VELOCITY_LIMIT + quantized * (2 * VELOCITY_LIMIT) / getSteps(velocityBits);
+            case Entity.STATE_DIRECTION:
+                return quantized - 1;
+            default:
+                throw new IllegalArgumentException("Encoding " + encoding + " is not quantized");
+        }
+    }
+
+    /**
+     * Rounds the fields of a state to the values the receiver will see, so that the sender
+     * can keep exactly what the receiver has as a baseline
+     * @param state the state to round in place
+     * @param fieldKinds the kind of each field
+     */
+    public void round(double[] state, int[] fieldKinds) {
+        for (int i = 0; i < state.length; i++) {
+            int encoding = getEncoding(fieldKinds[i], state[i]);
+            if (encoding != Entity.STATE_OTHER) {
+                state[i] = dequantize(encoding, quantize(encoding, state[i]));
+            }
+        }
+    }
+
+    /**
+     * Gets the largest difference between a value and what the receiver sees
+     * @param kind the kind of the value
+     * @return the error bound, which is 0 for values sent exactly
+     */
+    public double getMaxError(int kind) {
+        switch (kind) {
+            case Entity.STATE_POSITION:
+                return (POSITION_MAX - POSITION_MIN) / getSteps(positionBits) / 2;
+            case Entity.STATE_VELOCITY:
+                return VELOCITY_LIMIT / getSteps(velocityBits);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Helper method to get the largest quantized value for a bit width
+     */
+    private static double getSteps(int bits) {
+        return (double) ((1L << bits) - 1);
+    }
+
+    public int getPositionBits() {
+        return positionBits;
+    }
+
+    public int getVelocityBits() {
+        return velocityBits;
+    }
+
+    /**
+     * Gets the kind of every field in an entity's state
+     * @param entity the entity
+     * @return the kinds in field order
+     */
+    public static int[] getFieldKinds(Entity entity) {
+        int[] fieldKinds = new int[entity.getStateSize()];
+        for (int i = 0; i < fieldKinds.length; i++) {
+            fieldKinds[i] = entity.getStateFieldKind(i);
+        }
+        return fieldKinds;
+    }
+}
@@ -0,0 +1,9 @@
+package netcode.packets;
+
+/**
+ * Takes the place of a reliable message that a later message made obsolete before it was
+ * acknowledged, such as an older critical synchronization. The sequence number still has to be
+ * delivered for the channel to stay in order, but the receiver ignores the message itself.
+ */
+public class Superseded implements Packet {
+}
@@ -6,19 +6,79 @@ import java.util.ArrayList;
 
 public class Synchronization implements Packet {
     private ArrayList<Entity> entities;
+    // Static entities of a critical synchronization that the receiver looks up in its copy of the map
+    private int[] staticEntityIds = new int[0];
+    private ArrayList<EntityState> entityStates;
     private boolean critical;
     private long sequenceNumber;
+    private int fragmentIndex = 0;
+    private int fragmentCount = 1;
+    private StateQuantizer quantizer;
 
+    /**
+     * Creates a synchronization holding whole entities. A critical synchronization sends the
+     * entities in full while a non-critical one only sends their ids and full mutable state.
+     * @param entities the entities to synchronize
+     * @param critical specifies whether the synchronization replaces the receiver's entities
+     * @param sequenceNumber the order in which the synchronization was sent
+     */
     public Synchronization(ArrayList<Entity> entities, boolean critical, long sequenceNumber) {
         this.entities = entities;
+        this.entityStates = new ArrayList<>();
+        if (!critical) {
+            for (Entity entity : entities) {
+                double[] state = new double[entity.getStateSize()];
+                entity.writeState(state, 0);
+                entityStates.add(new EntityState(entity.getId(), state));
+            }
+        }
         this.critical = critical;
         this.sequenceNumber = sequenceNumber;
     }
 
+    /**
+     * Creates a critical synchronization that refers to the static entities by id and sends the others in full
+     * @param staticEntityIds the ids of the static entities, which the receiver finds in the map's static entity catalog
+     * @param entities the dynamic entities and players
+     * @param sequenceNumber the order in which the synchronization was sent
+     */
+    public Synchronization(int[] staticEntityIds, ArrayList<Entity> entities, long sequenceNumber) {
+        this(entities, true, sequenceNumber);
+        this.staticEntityIds = staticEntityIds;
+    }
+
+    /**
+     * Creates a fragment of a non-critical synchronization from entity states that may be deltas.
+     * Every fragment of a snapshot carries the same sequence number, which identifies the server tick.
+     * @param entityStates the states of the entities being synchronized
+     * @param sequenceNumber the tick the snapshot was taken on
+     * @param fragmentIndex the position of this fragment within the snapshot
+     * @param fragmentCount the number of fragments the snapshot was split into
+     * @param quantizer the precision the states are sent with
+     * @return the synchronization
+     */
+    public static Synchronization fromStates(ArrayList<EntityState> entityStates, long sequenceNumber,
+                                             int fragmentIndex, int fragmentCount, StateQuantizer quantizer) {
+        Synchronization synchronization = new Synchronization(new ArrayList<>(), false, sequenceNumber);
+        synchronization.entityStates = entityStates;
+        synchronization.fragmentIndex = fragmentIndex;
+        synchronization.fragmentCount = fragmentCount;
+        synchronization.quantizer = quantizer;
+        return synchronization;
+    }
+
     public ArrayList<Entity> getEntities() {
         return entities;
     }
 
+    public int[] getStaticEntityIds() {
+        return staticEntityIds;
+    }
+
+    public ArrayList<EntityState> getEntityStates() {
+        return entityStates;
+    }
+
     public boolean isCritical() {
         return critical;
     }
@@ -26,4 +86,16 @@ public class Synchronization implements Packet {
     public long getSequenceNumber() {
         return sequenceNumber;
     }
+
+    public int getFragmentIndex() {
+        return fragmentIndex;
+    }
+
+    public int getFragmentCount() {
+        return fragmentCount;
+    }
+
+    public StateQuantizer getQuantizer() {
+        return quantizer;
+    }
 }
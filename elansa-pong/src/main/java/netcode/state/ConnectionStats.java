@@ -0,0 +1,220 @@
+package netcode.state;
+
+import game.GameSettings;
+import netcode.packets.Ping;
+import netcode.packets.Pong;
+
+import java.util.Arrays;
+
+/**
+ * Measures a connection from the pings one end sends and the pongs it gets back.
+ * The round trip time and its variation, the jitter, are smoothed the way TCP does so that
+ * a single late pong does not swing them. Pings that were not answered within a second
+ * count as lost. Each pong also carries the other end's clock which gives an estimate of
+ * how far that clock is ahead of this one. All times are in nanoseconds.
+ */
+public class ConnectionStats {
+    private static final int HISTORY = 32;
+    private static final long LOSS_TIMEOUT = 1_000_000_000L;
+    private static final long MIN_RETRANSMISSION_TIMEOUT = 20_000_000L;
+    private static final long MAX_RETRANSMISSION_TIMEOUT = 1_000_000_000L;
+    private static final long DEFAULT_RETRANSMISSION_TIMEOUT = 100_000_000L;
+
+    private int nextPingSequenceNumber = 0;
+    private long lastPingTime = Long.MIN_VALUE;
+
+    // The recent pings indexed by sequence number modulo the history
+    private int[] pingSequenceNumbers = new int[HISTORY];
+    private long[] pingSendTimes = new long[HISTORY];
+    private boolean[] pingAnswered = new boolean[HISTORY];
+
+    private int highestAnsweredSequenceNumber = -1;
+    private long lostPingCount = 0;
+
+    private boolean measured = false;
+    private long roundTripTime = 0;
+    private long minRoundTripTime = Long.MAX_VALUE;
+    private long jitter = 0;
+    private long clockOffset = 0;
+
+    public ConnectionStats() {
+        Arrays.fill(pingSequenceNumbers, -1);
+    }
+
+    /**
+     * Checks whether the next ping is due
+     * @param now the current time
+     * @return true if a ping interval passed since the last ping
+     */
+    public synchronized boolean isPingDue(long now) {
+        return lastPingTime == Long.MIN_VALUE || now - lastPingTime >= GameSettings.PING_INTERVAL_MILLIS * 1_000_000L;
+    }
+
+    /**
+     * Creates the next ping and remembers when it was sent
+     * @param sessionToken the session token of the connection
+     * @param now the current time
+     * @return the ping to send
+     */
+    public synchronized Ping createPing(int sessionToken, long now) {
+        int pingSequenceNumber = nextPingSequenceNumber++;
+        int slot = pingSequenceNumber % HISTORY;
+        pingSequenceNumbers[slot] = pingSequenceNumber;
+        pingSendTimes[slot] = now;
+        pingAnswered[slot] = false;
+        lastPingTime = now;
+        return new Ping(sessionToken, pingSequenceNumber, now);
+    }
+
+    /**
+     * Creates the answer to a ping received from the other end
+     * @param sessionToken the session token of the connection
+     * @param ping the received ping
+     * @param now the current time
+     * @return the pong to send back
+     */
+    public static Pong createPong(int sessionToken, Ping ping, long now) {
+        return new Pong(sessionToken, ping.getPingSequenceNumber(), ping.getSendTime(), now);
+    }
+
+    /**
+     * Takes in the answer to one of our pings
+     * @param pong the received pong
+     * @param now the current time
+     * @return true if the pong answered a recent ping that was not answered yet
+     */
+    public synchronized boolean onPong(Pong pong, long now) {
+        int pingSequenceNumber = pong.getPingSequenceNumber();
+        if (pingSequenceNumber < 0) {
+            return false;
+        }
+        int slot = pingSequenceNumber % HISTORY;
+        if (pingSequenceNumbers[slot] != pingSequenceNumber
+                || pingSendTimes[slot] != pong.getPingSendTime()
+                || pingAnswered[slot]) {
+            return false;
+        }
+        pingAnswered[slot] = true;
+        // Pings are far enough apart not to be reordered so the ones skipped over were lost.
+        // Pings sent before the first answer may have gone out before the other end was ready.
+        if (pingSequenceNumber > highestAnsweredSequenceNumber) {
+            if (highestAnsweredSequenceNumber >= 0) {
+                lostPingCount += pingSequenceNumber - highestAnsweredSequenceNumber - 1;
+            }
+            highestAnsweredSequenceNumber = pingSequenceNumber;
+        }
+
+        long sample = now - pingSendTimes[slot];
+        minRoundTripTime = Math.min(minRoundTripTime, sample);
+        // The reply was made about half a round trip before it arrived
+        long offsetSample = pong.getReplyTime() - (pingSendTimes[slot] + sample / 2);
+        if (!measured) {
+            roundTripTime = sample;
+            jitter = sample / 2;
+            clockOffset = offsetSample;
+            measured = true;
+        } else {
+            jitter += (Math.abs(roundTripTime - sample) - jitter) / 4;
+            roundTripTime += (sample - roundTripTime) / 8;
+            clockOffset += (offsetSample - clockOffset) / 8;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a pong was received yet
+     * @return true if the round trip time and clock offset hold measurements
+     */
+    public synchronized boolean isMeasured() {
+        return measured;
+    }
+
+    /**
+     * Gets the smoothed round trip time
+     * @return the round trip time or 0 if nothing was measured yet
+     */
+    public synchronized long getRoundTripTime() {
+        return roundTripTime;
+    }
+
+    /**
+     * Gets the shortest round trip measured, which approximates the delay of the path without queueing
+     * @return the minimum round trip time or 0 if nothing was measured yet
+     */
+    public synchronized long getMinRoundTripTime() {
+        return measured ? minRoundTripTime : 0;
+    }
+
+    /**
+     * Gets the number of pings that were skipped over by the pongs received so far
+     * @return the number of lost pings
+     */
+    public synchronized long getLostPingCount() {
+        return lostPingCount;
+    }
+
+    /**
+     * Gets the smoothed deviation of the round trip time
+     * @return the jitter or 0 if nothing was measured yet
+     */
+    public synchronized long getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Gets the share of recent pings that were not answered
+     * @param now the current time
+     * @return the loss rate between 0 and 1
+     */
+    public synchronized double getPacketLoss(long now) {
+        int sent = 0;
+        int lost = 0;
+        for (int i = 0; i < HISTORY; i++) {
+            // Pings that may still be answered are left out
+            if (pingSequenceNumbers[i] < 0 || now - pingSendTimes[i] < LOSS_TIMEOUT) {
+                continue;
+            }
+            sent++;
+            if (!pingAnswered[i]) {
+                lost++;
+            }
+        }
+        return sent == 0 ? 0 : (double) lost / sent;
+    }
+
+    /**
+     * Gets how far the other end's clock is ahead of this one
+     * @return the offset or 0 if nothing was measured yet
+     */
+    public synchronized long getClockOffset() {
+        return clockOffset;
+    }
+
+    /**
+     * Estimates the other end's clock
+     * @param now the current time on this end
+     * @return the time on the other end
+     */
+    public synchronized long getRemoteTime(long now) {
+        return now + clockOffset;
+    }
+
+    /**
+     * Gets how long to wait for an acknowledgement before resending, which is the round trip time
+     * plus four times the jitter as in TCP
+     * @return the retransmission timeout
+     */
+    public synchronized long getRetransmissionTimeout() {
+        if (!measured) {
+            return DEFAULT_RETRANSMISSION_TIMEOUT;
+        }
+        long timeout = roundTripTime + 4 * jitter;
+        return Math.max(MIN_RETRANSMISSION_TIMEOUT, Math.min(MAX_RETRANSMISSION_TIMEOUT, timeout));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("rtt %.1f ms, jitter %.1f ms, loss %.1f%%, clock offset %.1f ms",
+                roundTripTime / 1e6, jitter / 1e6, getPacketLoss(System.nanoTime()) * 100, clockOffset / 1e6);
+    }
+}
@@ -0,0 +1,30 @@
+package netcode.state;
+
+import game.GameSettings;
+
+/**
+ * Token bucket limiting how many datagrams the server accepts from one client per second.
+ * A client sends an acknowledgement every frame plus its inputs and pings, so the bucket allows
+ * a short burst above the steady rate before datagrams are dropped.
+ * Taken from by every UDP receive thread the client's datagrams arrive on.
+ */
+public class DatagramBucket {
+    private double availableDatagrams = GameSettings.MAX_CLIENT_DATAGRAM_BURST;
+    private long lastRefillTime = System.nanoTime();
+
+    /**
+     * Takes a token for one datagram if the bucket holds one
+     * @param now the current time in nanoseconds
+     * @return true if the datagram is within the client's rate
+     */
+    public synchronized boolean tryTake(long now) {
+        availableDatagrams = Math.min(GameSettings.MAX_CLIENT_DATAGRAM_BURST,
+                availableDatagrams + (now - lastRefillTime) / 1e9 * GameSettings.MAX_CLIENT_DATAGRAMS_PER_SECOND);
+        lastRefillTime = now;
+        if (availableDatagrams < 1) {
+            return false;
+        }
+        availableDatagrams--;
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+package netcode.state;
+
+import io.netty.buffer.ByteBuf;
+import netcode.packets.PacketCodec;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a datagram received by the server is worth decoding. Only the type byte and
+ * the session token that start every packet a client sends over UDP are read, so a flood of
+ * garbage or spoofed datagrams costs a map lookup each instead of a full decode. Datagrams from
+ * a session that sends faster than its token bucket allows are dropped as well, which keeps the
+ * work one client can put on the simulation bounded.
+ * Runs on every UDP receive thread at once.
+ */
+public class DatagramFilter {
+    // Type byte followed by the session token
+    private static final int HEADER_BYTES = 1 + Integer.BYTES;
+
+    private Map<InetSocketAddress, ServerPlayerData> udpSessions;
+
+    private LongAdder malformedCount = new LongAdder();
+    private LongAdder unknownSessionCount = new LongAdder();
+    private LongAdder rateLimitedCount = new LongAdder();
+    private LongAdder undecodableCount = new LongAdder();
+
+    /**
+     * Creates a filter
+     * @param udpSessions the connected clients by the address they send UDP packets from
+     */
+    public DatagramFilter(Map<InetSocketAddress, ServerPlayerData> udpSessions) {
+        this.udpSessions = udpSessions;
+    }
+
+    /**
+     * Checks a received datagram without decoding it
+     * @param sender the address the datagram came from
+     * @param content the datagram's payload, which is not consumed
+     * @return true if the datagram should be decoded
+     */
+    public boolean accept(InetSocketAddress sender, ByteBuf content) {
+        if (content.isReadable() && content.getByte(content.readerIndex()) == PacketCodec.CONNECT) {
+            // Clients send their connect packet over UDP once only to prime the channel
+            return false;
+        }
+        if (content.readableBytes() < HEADER_BYTES || !isClientUdpType(content.getByte(content.readerIndex()))) {
+            malformedCount.increment();
+            return false;
+        }
+        ServerPlayerData playerData = udpSessions.get(sender);
+        if (playerData == null || playerData.getSessionToken() != content.getInt(content.readerIndex() + 1)) {
+            unknownSessionCount.increment();
+            return false;
+        }
+        if (!playerData.getDatagramBucket().tryTake(System.nanoTime())) {
+            rateLimitedCount.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to check whether a type byte belongs to a packet clients send over UDP
+     */
+    private static boolean isClientUdpType(byte type) {
+        return type == PacketCodec.PLAYER_INPUT || type == PacketCodec.SNAPSHOT_ACK
+                || type == PacketCodec.PING || type == PacketCodec.PONG;
+    }
+
+    /**
+     * Counts a datagram that was accepted but could not be decoded
+     */
+    public void onUndecodable() {
+        undecodableCount.increment();
+    }
+
+    public long getDroppedCount() {
+        return malformedCount.sum() + unknownSessionCount.sum() + rateLimitedCount.sum() + undecodableCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d datagrams dropped (%d malformed, %d unknown session, %d rate limited, %d undecodable)",
+                getDroppedCount(), malformedCount.sum(), unknownSessionCount.sum(), rateLimitedCount.sum(),
+                undecodableCount.sum());
+    }
+}
@@ -0,0 +1,102 @@
+package netcode.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Keeps the maps a client downloaded in a directory, each in a file named after the SHA-256
+ * hash of its contents. Since a map is looked up by the hash the server announces, a changed map
+ * is simply a different file and a cached one never has to be checked against the server again.
+ * A map is kept as the static entities the server encoded with PacketCodec, not as the map file.
+ */
+public class MapCache {
+    private File directory;
+
+    /**
+     * Creates a cache
+     * @param directory the directory holding the cached maps, created when the first map is stored
+     */
+    public MapCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Hashes the contents of a map file
+     * @param gameMap the bytes of the map
+     * @return the SHA-256 hash
+     */
+    public static byte[] hash(byte[] gameMap) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(gameMap);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes a hash as hexadecimal digits
+     * @param hash the hash
+     * @return the digits
+     */
+    public static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Reads a map from the cache
+     * @param mapHash the hash of the map
+     * @return the bytes of the map or null if it is not cached or the cached file does not match its hash
+     */
+    public byte[] load(byte[] mapHash) {
+        File file = getFile(mapHash);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            byte[] gameMap = Files.readAllBytes(file.toPath());
+            if (Arrays.equals(hash(gameMap), mapHash)) {
+                return gameMap;
+            }
+            // Damaged, so fetch it again
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Writes a map into the cache. The file is written under a temporary name and then renamed
+     * so that an interrupted write never leaves a partial map behind.
+     * @param mapHash the hash of the map
+     * @param gameMap the bytes of the map
+     */
+    public void store(byte[] mapHash, byte[] gameMap) {
+        try {
+            Files.createDirectories(directory.toPath());
+            File temporary = File.createTempFile(toHex(mapHash), ".part", directory);
+            Files.write(temporary.toPath(), gameMap);
+            Files.move(temporary.toPath(), getFile(mapHash).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The map is still used, it is just fetched again next time
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Helper method to get the file a map is cached in
+     */
+    private File getFile(byte[] mapHash) {
+        return new File(directory, toHex(mapHash) + ".map");
+    }
+}
@@ -0,0 +1,169 @@
+package netcode.state;
+
+import engine.Collider;
+import engine.Entity;
+import engine.Vec2d;
+import game.Ball;
+import game.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Chooses which entities a client's snapshot carries when they do not all fit in its byte budget.
+ * Every tick each entity's accumulated priority grows by how relevant it is to the client and
+ * the entities with the most accumulated priority are sent first, after which theirs starts over.
+ * An entity of low relevance therefore still gets its turn, and one that went unsent for too many
+ * ticks is sent regardless of the budget so that nothing freezes on the client's screen.
+ */
+public class PriorityAccumulator {
+    // Balls matter most, above all when they head for the client's side of the field
+    private static final double BALL_PRIORITY = 2.0;
+    private static final double BALL_NEAR_PRIORITY = 4.0;
+    private static final double BALL_NEAR_DISTANCE = 0.5;
+    private static final double OPPONENT_PRIORITY = 1.5;
+    // Obstacles get more priority the faster they move, in field widths per second
+    private static final double OBSTACLE_PRIORITY = 0.5;
+    // The client moves its own player itself so the server's copy is rarely needed
+    private static final double OWN_PLAYER_PRIORITY = 0.25;
+    // About half a second at the broadcast rate
+    private static final long MAX_UNSENT_TICKS = 30;
+    // Snapshots are broadcast every 16 milliseconds
+    private static final double TICKS_PER_SECOND = 60;
+    private static final long NEVER_SENT = Long.MIN_VALUE;
+
+    // Indexed by entity id
+    private double[] accumulatedPriorities = new double[0];
+    private long[] lastSentSequenceNumbers = new long[0];
+    // Where each entity and its colliders were at the last snapshot, since obstacles are moved without a velocity
+    private double[][] lastPositions = new double[0][];
+    private long[] lastSeenSequenceNumbers = new long[0];
+    private long deferredCount = 0;
+
+    /**
+     * Picks the entities to send in a snapshot
+     * @param entities the entities of the snapshot
+     * @param sizes the number of bytes each entity's state takes in the snapshot
+     * @param sequenceNumber the snapshot's sequence number
+     * @param ownPlayer the client's player or null if the client is a spectator
+     * @param budgetBytes the number of bytes the snapshot's states may take
+     * @return for each entity whether it is sent
+     */
+    public boolean[] select(ArrayList<Entity> entities, int[] sizes, long sequenceNumber, Player ownPlayer, double budgetBytes) {
+        Integer[] order = new Integer[entities.size()];
+        double[] priorities = new double[entities.size()];
+        boolean[] starving = new boolean[entities.size()];
+        int totalBytes = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            int id = entities.get(i).getId();
+            ensureCapacity(id);
+            accumulatedPriorities[id] += getPriority(entities.get(i), ownPlayer, sequenceNumber);
+            priorities[i] = accumulatedPriorities[id];
+            long lastSentSequenceNumber = lastSentSequenceNumbers[id];
+            starving[i] = lastSentSequenceNumber == NEVER_SENT || sequenceNumber - lastSentSequenceNumber >= MAX_UNSENT_TICKS;
+            order[i] = i;
+            totalBytes += sizes[i];
+        }
+
+        boolean[] selected = new boolean[entities.size()];
+        if (totalBytes <= budgetBytes) {
+            // Everything fits so there is nothing to choose
+            Arrays.fill(selected, true);
+        } else {
+            // Starving entities first, then by accumulated priority
+            Arrays.sort(order, (a, b) -> starving[a] != starving[b]
+                    ? Boolean.compare(starving[b], starving[a])
+                    : Double.compare(priorities[b], priorities[a]));
+            double remainingBytes = budgetBytes;
+            for (int i : order) {
+                if (starving[i] || sizes[i] <= remainingBytes) {
+                    selected[i] = true;
+                    remainingBytes -= sizes[i];
+                }
+            }
+        }
+
+        for (int i = 0; i < entities.size(); i++) {
+            if (selected[i]) {
+                int id = entities.get(i).getId();
+                accumulatedPriorities[id] = 0;
+                lastSentSequenceNumbers[id] = sequenceNumber;
+            } else {
+                deferredCount++;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Helper method to grow the tables to hold an entity id
+     */
+    private void ensureCapacity(int id) {
+        if (id < accumulatedPriorities.length) {
+            return;
+        }
+        int length = accumulatedPriorities.length;
+        accumulatedPriorities = Arrays.copyOf(accumulatedPriorities, id + 1);
+        lastSentSequenceNumbers = Arrays.copyOf(lastSentSequenceNumbers, id + 1);
+        Arrays.fill(lastSentSequenceNumbers, length, id + 1, NEVER_SENT);
+        lastPositions = Arrays.copyOf(lastPositions, id + 1);
+        lastSeenSequenceNumbers = Arrays.copyOf(lastSeenSequenceNumbers, id + 1);
+    }
+
+    /**
+     * Helper method to rate how relevant an entity is to the client for one tick
+     */
+    private double getPriority(Entity entity, Player ownPlayer, long sequenceNumber) {
+        if (entity instanceof Ball) {
+            if (ownPlayer == null) {
+                return BALL_PRIORITY;
+            }
+            // Players guard their goal so the distance to the player is the distance to the goal
+            double distance = entity.getPosition().sub(ownPlayer.getPosition()).mag();
+            return BALL_PRIORITY + BALL_NEAR_PRIORITY * Math.max(0, 1 - distance / BALL_NEAR_DISTANCE);
+        } else if (entity instanceof Player) {
+            return entity == ownPlayer ? OWN_PLAYER_PRIORITY : OPPONENT_PRIORITY;
+        }
+        return OBSTACLE_PRIORITY * (1 + getSpeed(entity, sequenceNumber));
+    }
+
+    /**
+     * Helper method to measure how fast an entity or any of its colliders moved since the last snapshot
+     */
+    private double getSpeed(Entity entity, long sequenceNumber) {
+        int id = entity.getId();
+        ArrayList<Collider> colliders = entity.getColliders();
+        double[] positions = lastPositions[id];
+        boolean known = positions != null && positions.length == 2 + 2 * colliders.size();
+        if (!known) {
+            positions = new double[2 + 2 * colliders.size()];
+            lastPositions[id] = positions;
+        }
+        double distance = 0;
+        for (int i = -1; i < colliders.size(); i++) {
+            Vec2d position = i < 0 ? entity.getPosition() : colliders.get(i).getPosition();
+            int index = 2 + 2 * i;
+            if (known) {
+                double dx = position.getX() - positions[index];
+                double dy = position.getY() - positions[index + 1];
+                distance = Math.max(distance, Math.sqrt(dx * dx + dy * dy));
+            }
+            positions[index] = position.getX();
+            positions[index + 1] = position.getY();
+        }
+        long ticks = sequenceNumber - lastSeenSequenceNumbers[id];
+        lastSeenSequenceNumbers[id] = sequenceNumber;
+        if (!known || ticks <= 0) {
+            return 0;
+        }
+        return distance / ticks * TICKS_PER_SECOND;
+    }
+
+    /**
+     * Gets the number of entity states left out of snapshots to stay within the budget
+     * @return the number of deferred states
+     */
+    public long getDeferredCount() {
+        return deferredCount;
+    }
+}
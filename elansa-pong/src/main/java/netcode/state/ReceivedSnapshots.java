@@ -0,0 +1,151 @@
+package netcode.state;
+
+import netcode.packets.EntityState;
+import netcode.packets.SnapshotAck;
+import netcode.packets.SnapshotPacker;
+import netcode.packets.Synchronization;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the entity states a client received in recent non-critical synchronizations so
+ * that deltas can be rebuilt against the baselines the server picked, and tracks which
+ * synchronizations still need to be acknowledged.
+ */
+public class ReceivedSnapshots {
+    private static final int CAPACITY = EntityState.MAX_BASELINE_AGE + 1;
+
+    // For each entity id the states indexed by sequence number modulo the capacity
+    private long[][] sequenceNumbers = new long[0][];
+    private double[][][] states = new double[0][][];
+
+    // For recent snapshots the fragments received so far and whether any of their states could not be resolved
+    private long[] fragmentSequenceNumbers = new long[CAPACITY];
+    private long[] receivedFragments = new long[CAPACITY];
+    private boolean[] unresolvedFragments = new boolean[CAPACITY];
+
+    private long latestSequenceNumber = EntityState.NO_BASELINE;
+    private int ackBits = 0;
+    private boolean ackPending = false;
+
+    /**
+     * Rebuilds an entity's complete state and stores it as a possible future baseline.
+     * The state is written into the array already held by the entity's slot for the sequence
+     * number so that receiving snapshots does not allocate once every slot has been used.
+     * @param sequenceNumber the synchronization that carried the state
+     * @param entityState the received state
+     * @return the complete state, which is overwritten once the slot is reused by a later sequence number,
+     * or null if the delta's baseline is no longer known
+     */
+    public synchronized double[] resolve(long sequenceNumber, EntityState entityState) {
+        int id = entityState.getId();
+        if (id >= sequenceNumbers.length) {
+            sequenceNumbers = Arrays.copyOf(sequenceNumbers, id + 1);
+            states = Arrays.copyOf(states, id + 1);
+        }
+        long[] entitySequenceNumbers = sequenceNumbers[id];
+        double[][] entityStates = states[id];
+        if (entitySequenceNumbers == null) {
+            entitySequenceNumbers = new long[CAPACITY];
+            Arrays.fill(entitySequenceNumbers, EntityState.NO_BASELINE);
+            entityStates = new double[CAPACITY][];
+            sequenceNumbers[id] = entitySequenceNumbers;
+            states[id] = entityStates;
+        }
+
+        double[] baseline = null;
+        if (!entityState.isFull()) {
+            int baselineSlot = (int) (entityState.getBaselineSequenceNumber() % CAPACITY);
+            baseline = entityStates[baselineSlot];
+            if (entitySequenceNumbers[baselineSlot] != entityState.getBaselineSequenceNumber()
+                    || baseline.length != entityState.getStateSize()) {
+                return null;
+            }
+        }
+
+        // The baseline is at most MAX_BASELINE_AGE old so it never shares the slot being written
+        int slot = (int) (sequenceNumber % CAPACITY);
+        double[] state = entityStates[slot];
+        if (state == null || state.length != entityState.getStateSize()) {
+            state = new double[entityState.getStateSize()];
+        }
+        entityState.resolve(baseline, state);
+        entitySequenceNumbers[slot] = sequenceNumber;
+        entityStates[slot] = state;
+        return state;
+    }
+
+    /**
+     * Records that a fragment of a snapshot arrived. A snapshot is acknowledged once all its
+     * fragments arrived and every state in them was resolved, since the server then takes every
+     * state of the snapshot as a baseline.
+     * @param synchronization the received fragment
+     * @param resolved whether every state in the fragment was resolved
+     */
+    public synchronized void recordFragment(Synchronization synchronization, boolean resolved) {
+        long sequenceNumber = synchronization.getSequenceNumber();
+        int fragmentCount = synchronization.getFragmentCount();
+        if (fragmentCount > SnapshotPacker.MAX_FRAGMENTS) {
+            return;
+        }
+
+        int slot = (int) (sequenceNumber % CAPACITY);
+        if (fragmentSequenceNumbers[slot] != sequenceNumber) {
+            fragmentSequenceNumbers[slot] = sequenceNumber;
+            receivedFragments[slot] = 0;
+            unresolvedFragments[slot] = false;
+        }
+        long fragmentBit = 1L << synchronization.getFragmentIndex();
+        if ((receivedFragments[slot] & fragmentBit) != 0) {
+            return;
+        }
+        receivedFragments[slot] |= fragmentBit;
+        unresolvedFragments[slot] |= !resolved;
+
+        long allFragments = fragmentCount == 64 ? -1L : (1L << fragmentCount) - 1;
+        if (receivedFragments[slot] == allFragments && !unresolvedFragments[slot]) {
+            recordReceived(sequenceNumber);
+        }
+    }
+
+    /**
+     * Records that a synchronization arrived so that it is included in the next acknowledgement
+     * @param sequenceNumber the synchronization's sequence number
+     */
+    public synchronized void recordReceived(long sequenceNumber) {
+        if (sequenceNumber > latestSequenceNumber) {
+            long shift = sequenceNumber - latestSequenceNumber;
+            if (latestSequenceNumber == EntityState.NO_BASELINE || shift > 32) {
+                ackBits = 0;
+            } else {
+                // The previous latest becomes bit shift - 1
+                ackBits = (int) (((long) ackBits << shift) | (1L << (shift - 1)));
+            }
+            latestSequenceNumber = sequenceNumber;
+        } else if (sequenceNumber < latestSequenceNumber && latestSequenceNumber - sequenceNumber <= 32) {
+            ackBits |= 1 << (latestSequenceNumber - sequenceNumber - 1);
+        }
+        ackPending = true;
+    }
+
+    /**
+     * Creates an acknowledgement if synchronizations or reliable messages arrived since the last one
+     * @param sessionToken the client's session token
+     * @param reliableReceiver the receiving end of the client's reliable channel
+     * @return the acknowledgement or null if there is nothing new to acknowledge
+     */
+    public synchronized SnapshotAck createAck(int sessionToken, ReliableReceiver reliableReceiver) {
+        boolean reliableAckPending = reliableReceiver.takeAckPending();
+        if (!ackPending && !reliableAckPending) {
+            return null;
+        }
+        ackPending = false;
+        return new SnapshotAck(
+                sessionToken,
+                latestSequenceNumber,
+                ackBits,
+                reliableReceiver.getDeliveredSequenceNumber(),
+                reliableReceiver.getAckBits()
+        );
+    }
+}
@@ -0,0 +1,175 @@
+package netcode.state;
+
+import game.GameSettings;
+import netcode.packets.MessageCompressor;
+import netcode.packets.Packet;
+import netcode.packets.PacketCodec;
+import netcode.packets.ReliableBatch;
+import netcode.packets.Serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The receiving end of the reliable ordered channel. Messages are delivered in the order they
+ * were sent, holding back the ones that arrive ahead of a missing message until it is resent.
+ * Only messages within the window covered by the acknowledgement bits are held back, later ones
+ * are dropped and arrive again with the sender's next resend.
+ * Messages are only decoded once they are delivered, so that the pieces of a message too large for
+ * one datagram can be joined first. Pieces that do not continue the message being joined belong to
+ * a message the sender superseded and are dropped along with the pieces joined so far.
+ */
+public class ReliableReceiver {
+    private static final int WINDOW = 32;
+    // Bounds what the piece counts of a corrupt or hostile message can make the receiver hold
+    private static final int MAX_JOINED_BYTES = 4 * 1024 * 1024;
+
+    private int nextSequenceNumber = 0;
+    private HashMap<Integer, byte[]> heldBack = new HashMap<>();
+    // The pieces of the message being joined or null between messages
+    private ByteArrayOutputStream joinedPieces = null;
+    private int nextPieceIndex = 0;
+    private int pieceCount = 0;
+    private boolean ackPending = false;
+    private boolean closed = false;
+    private MessageCompressor compressor = new MessageCompressor(GameSettings.COMPRESSION_THRESHOLD_BYTES);
+
+    /**
+     * Takes in a batch of messages
+     * @param batch the received batch
+     * @return the messages that can now be delivered, in order, or none once the receiver is closed
+     */
+    public synchronized ArrayList<Packet> receive(ReliableBatch batch) {
+        if (closed) {
+            // Datagrams still in flight when the client closed are dropped
+            return new ArrayList<>();
+        }
+        for (int i = 0; i < batch.getSequenceNumbers().length; i++) {
+            int sequenceNumber = batch.getSequenceNumbers()[i];
+            // Resends of delivered messages are acknowledged again in case the acknowledgement was lost
+            ackPending = true;
+            if (sequenceNumber < nextSequenceNumber
+                    || sequenceNumber > nextSequenceNumber + WINDOW
+                    || heldBack.containsKey(sequenceNumber)) {
+                continue;
+            }
+            heldBack.put(sequenceNumber, batch.getEncodedMessages()[i]);
+        }
+
+        ArrayList<Packet> delivered = new ArrayList<>();
+        byte[] message;
+        while ((message = heldBack.remove(nextSequenceNumber)) != null) {
+            nextSequenceNumber++;
+            Packet packet = message.length > 0 && message[0] == PacketCodec.MESSAGE_PIECE
+                    ? joinPiece(message)
+                    : decode(message);
+            if (packet != null) {
+                delivered.add(packet);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Helper method to add a piece to the message being joined
+     * @return the message once its last piece was added, otherwise null
+     */
+    private Packet joinPiece(byte[] piece) {
+        if (piece.length < PacketCodec.MESSAGE_PIECE_HEADER_BYTES) {
+            System.out.println("Dropped a truncated message piece");
+            joinedPieces = null;
+            return null;
+        }
+        int index = ((piece[1] & 0xff) << 8) | (piece[2] & 0xff);
+        int count = ((piece[3] & 0xff) << 8) | (piece[4] & 0xff);
+        if (index == 0) {
+            joinedPieces = new ByteArrayOutputStream();
+            pieceCount = count;
+        } else if (joinedPieces == null || index != nextPieceIndex || count != pieceCount) {
+            // The rest of a message whose earlier pieces were superseded
+            joinedPieces = null;
+            return null;
+        }
+        joinedPieces.write(piece, PacketCodec.MESSAGE_PIECE_HEADER_BYTES, piece.length - PacketCodec.MESSAGE_PIECE_HEADER_BYTES);
+        nextPieceIndex = index + 1;
+        if (joinedPieces.size() > MAX_JOINED_BYTES) {
+            System.out.println("Dropped a message of more than " + MAX_JOINED_BYTES + " bytes");
+            joinedPieces = null;
+            return null;
+        }
+        if (nextPieceIndex < pieceCount) {
+            return null;
+        }
+        byte[] message = joinedPieces.toByteArray();
+        joinedPieces = null;
+        return decode(message);
+    }
+
+    /**
+     * Helper method to decode a whole message, which also ends any message being joined
+     * @return the packet or null if the message is corrupt
+     */
+    private Packet decode(byte[] message) {
+        joinedPieces = null;
+        try {
+            return Serializer.fromBytes(compressor.decompress(message));
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Releases the native memory of the receiver's compressor. Batches received afterwards are dropped.
+     */
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            heldBack.clear();
+            joinedPieces = null;
+            compressor.close();
+        }
+    }
+
+    /**
+     * Gets the last message delivered in order
+     * @return the sequence number or -1 if nothing was delivered yet
+     */
+    public synchronized int getDeliveredSequenceNumber() {
+        return nextSequenceNumber - 1;
+    }
+
+    /**
+     * Gets the messages held back behind a missing one
+     * @return bit i is set if message getDeliveredSequenceNumber() + 2 + i was received
+     */
+    public synchronized int getAckBits() {
+        int ackBits = 0;
+        for (int sequenceNumber : heldBack.keySet()) {
+            int bit = sequenceNumber - nextSequenceNumber - 1;
+            if (bit >= 0 && bit < 32) {
+                ackBits |= 1 << bit;
+            }
+        }
+        return ackBits;
+    }
+
+    /**
+     * Gets the compressor that restores compressed messages, which also keeps the compression metrics
+     * @return the compressor
+     */
+    public MessageCompressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * Checks whether messages arrived since the last acknowledgement and clears the flag
+     * @return true if an acknowledgement should be sent
+     */
+    public synchronized boolean takeAckPending() {
+        boolean pending = ackPending;
+        ackPending = false;
+        return pending;
+    }
+}
@@ -0,0 +1,245 @@
+package netcode.state;
+
+import game.GameSettings;
+import netcode.packets.MessageCompressor;
+import netcode.packets.Packet;
+import netcode.packets.PacketCodec;
+import netcode.packets.ReliableBatch;
+import netcode.packets.Serializer;
+import netcode.packets.Superseded;
+import netcode.packets.Synchronization;
+
+import java.util.ArrayList;
+
+/**
+ * The sending end of the reliable ordered channel the server keeps for each client.
+ * Messages are numbered in the order they are sent and kept until the client acknowledges
+ * them. Unacknowledged messages are resent once the retransmission timeout has passed since
+ * they were last sent, so only the messages that were actually lost are sent again.
+ * A message too large for one datagram is split into pieces, each sent and acknowledged under
+ * its own sequence number, which the receiver joins again once it has all of them in order.
+ * A critical synchronization makes the unacknowledged ones before it obsolete, so they are
+ * replaced by a Superseded placeholder that keeps the channel in order without their bytes.
+ */
+public class ReliableSender {
+    private static final int MAX_BATCH_MESSAGES = 255;
+    private static final long DEFAULT_RETRANSMISSION_TIMEOUT = 100_000_000L;
+    private static final byte[] SUPERSEDED_MESSAGE = Serializer.getBytes(new Superseded());
+
+    private int nextSequenceNumber = 0;
+    private long retransmissionTimeout = DEFAULT_RETRANSMISSION_TIMEOUT;
+    private MessageCompressor compressor;
+
+    // Unacknowledged messages in the order they were sent
+    private ArrayList<Integer> pendingSequenceNumbers = new ArrayList<>();
+    private ArrayList<byte[]> pendingMessages = new ArrayList<>();
+    private ArrayList<Long> lastSendTimes = new ArrayList<>();
+    private ArrayList<Long> queueTimes = new ArrayList<>();
+    private ArrayList<Boolean> pendingCritical = new ArrayList<>();
+    private long pendingBytes = 0;
+
+    private long sentCount = 0;
+    private long resentCount = 0;
+    private long supersededCount = 0;
+
+    /**
+     * Creates the sending end of a reliable channel
+     * @param compressor compresses large messages or null if the client does not support compression
+     */
+    public ReliableSender(MessageCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Queues a message. It is encoded now so later changes to the objects it refers to are not sent,
+     * and it is compressed once however often it has to be resent.
+     * @param packet the message
+     */
+    public void send(Packet packet) {
+        boolean critical = packet instanceof Synchronization && ((Synchronization) packet).isCritical();
+        if (critical) {
+            for (int i = 0; i < pendingMessages.size(); i++) {
+                if (pendingCritical.get(i)) {
+                    pendingBytes -= pendingMessages.get(i).length - SUPERSEDED_MESSAGE.length;
+                    pendingMessages.set(i, SUPERSEDED_MESSAGE);
+                    pendingCritical.set(i, false);
+                    supersededCount++;
+                }
+            }
+        }
+
+        byte[] message = Serializer.getBytes(packet);
+        if (compressor != null) {
+            message = compressor.compress(message);
+        }
+        long now = System.nanoTime();
+        int maxPieceBytes = getMaxMessageBytes() - PacketCodec.MESSAGE_PIECE_HEADER_BYTES;
+        if (message.length <= getMaxMessageBytes()) {
+            queue(message, critical, now);
+            return;
+        }
+        int pieceCount = (message.length + maxPieceBytes - 1) / maxPieceBytes;
+        if (pieceCount > 0xFFFF) {
+            throw new IllegalArgumentException("Reliable message of " + message.length + " bytes has too many pieces");
+        }
+        for (int i = 0; i < pieceCount; i++) {
+            int offset = i * maxPieceBytes;
+            int length = Math.min(maxPieceBytes, message.length - offset);
+            byte[] piece = new byte[PacketCodec.MESSAGE_PIECE_HEADER_BYTES + length];
+            piece[0] = PacketCodec.MESSAGE_PIECE;
+            piece[1] = (byte) (i >>> 8);
+            piece[2] = (byte) i;
+            piece[3] = (byte) (pieceCount >>> 8);
+            piece[4] = (byte) pieceCount;
+            System.arraycopy(message, offset, piece, PacketCodec.MESSAGE_PIECE_HEADER_BYTES, length);
+            queue(piece, critical, now);
+        }
+    }
+
+    /**
+     * Helper method to number a message or piece and keep it until it is acknowledged
+     */
+    private void queue(byte[] message, boolean critical, long now) {
+        pendingSequenceNumbers.add(nextSequenceNumber++);
+        pendingMessages.add(message);
+        // Never sent
+        lastSendTimes.add(Long.MIN_VALUE);
+        queueTimes.add(now);
+        pendingCritical.add(critical);
+        pendingBytes += message.length;
+    }
+
+    /**
+     * Helper method to get the size of the largest message that fits in a datagram on its own
+     */
+    private static int getMaxMessageBytes() {
+        return Math.min(PacketCodec.MAX_RELIABLE_MESSAGE_BYTES, GameSettings.MAX_DATAGRAM_BYTES
+                - PacketCodec.RELIABLE_BATCH_HEADER_BYTES - PacketCodec.RELIABLE_MESSAGE_HEADER_BYTES);
+    }
+
+    /**
+     * Collects the messages that are due to be sent, either for the first time or again
+     * @param now the current time in nanoseconds
+     * @return the batches to send which may be empty
+     */
+    public ArrayList<ReliableBatch> collectDueBatches(long now) {
+        ArrayList<ReliableBatch> batches = new ArrayList<>();
+        ArrayList<Integer> batchSequenceNumbers = new ArrayList<>();
+        ArrayList<byte[]> batchMessages = new ArrayList<>();
+        int batchBytes = PacketCodec.RELIABLE_BATCH_HEADER_BYTES;
+
+        for (int i = 0; i < pendingMessages.size(); i++) {
+            long lastSendTime = lastSendTimes.get(i);
+            if (lastSendTime != Long.MIN_VALUE && now - lastSendTime < retransmissionTimeout) {
+                continue;
+            }
+
+            byte[] message = pendingMessages.get(i);
+            int messageBytes = PacketCodec.RELIABLE_MESSAGE_HEADER_BYTES + message.length;
+            if (!batchMessages.isEmpty()
+                    && (batchBytes + messageBytes > GameSettings.MAX_DATAGRAM_BYTES || batchMessages.size() == MAX_BATCH_MESSAGES)) {
+                batches.add(createBatch(batchSequenceNumbers, batchMessages));
+                batchSequenceNumbers.clear();
+                batchMessages.clear();
+                batchBytes = PacketCodec.RELIABLE_BATCH_HEADER_BYTES;
+            }
+            batchSequenceNumbers.add(pendingSequenceNumbers.get(i));
+            batchMessages.add(message);
+            batchBytes += messageBytes;
+
+            if (lastSendTime == Long.MIN_VALUE) {
+                sentCount++;
+            } else {
+                resentCount++;
+            }
+            lastSendTimes.set(i, now);
+        }
+        if (!batchMessages.isEmpty()) {
+            batches.add(createBatch(batchSequenceNumbers, batchMessages));
+        }
+        return batches;
+    }
+
+    /**
+     * Helper method to create a batch from the collected messages
+     */
+    private ReliableBatch createBatch(ArrayList<Integer> sequenceNumbers, ArrayList<byte[]> messages) {
+        int[] batchSequenceNumbers = new int[sequenceNumbers.size()];
+        for (int i = 0; i < batchSequenceNumbers.length; i++) {
+            batchSequenceNumbers[i] = sequenceNumbers.get(i);
+        }
+        return new ReliableBatch(batchSequenceNumbers, messages.toArray(new byte[0][]));
+    }
+
+    /**
+     * Forgets the messages the client acknowledged
+     * @param deliveredSequenceNumber every message up to this one was delivered
+     * @param ackBits bit i acknowledges message deliveredSequenceNumber + 2 + i
+     */
+    public void acknowledge(int deliveredSequenceNumber, int ackBits) {
+        for (int i = pendingSequenceNumbers.size() - 1; i >= 0; i--) {
+            int sequenceNumber = pendingSequenceNumbers.get(i);
+            int bit = sequenceNumber - deliveredSequenceNumber - 2;
+            if (sequenceNumber <= deliveredSequenceNumber || (bit >= 0 && bit < 32 && (ackBits & (1 << bit)) != 0)) {
+                pendingSequenceNumbers.remove(i);
+                pendingBytes -= pendingMessages.remove(i).length;
+                lastSendTimes.remove(i);
+                queueTimes.remove(i);
+                pendingCritical.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of messages that were sent but not acknowledged yet
+     * @return the number of messages
+     */
+    public int getPendingCount() {
+        return pendingMessages.size();
+    }
+
+    /**
+     * Gets the size of the messages that were queued but not acknowledged yet
+     * @return the number of bytes
+     */
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Gets how long the oldest unacknowledged message has been waiting
+     * @param now the current time in nanoseconds
+     * @return the time in nanoseconds or 0 if every message was acknowledged
+     */
+    public long getOldestPendingAge(long now) {
+        return queueTimes.isEmpty() ? 0 : now - queueTimes.get(0);
+    }
+
+    public long getRetransmissionTimeout() {
+        return retransmissionTimeout;
+    }
+
+    public void setRetransmissionTimeout(long retransmissionTimeout) {
+        this.retransmissionTimeout = retransmissionTimeout;
+    }
+
+    /**
+     * Gets the compressor of the channel
+     * @return the compressor or null if messages are not compressed
+     */
+    public MessageCompressor getCompressor() {
+        return compressor;
+    }
+
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    public long getResentCount() {
+        return resentCount;
+    }
+
+    public long getSupersededCount() {
+        return supersededCount;
+    }
+}
@@ -0,0 +1,104 @@
+package netcode.state;
+
+import game.GameSettings;
+
+/**
+ * Decides how many bytes per second the server sends to one client.
+ * The rate follows additive increase and multiplicative decrease: it grows a little with every
+ * measurement of a healthy connection and is cut when pings are lost or the round trip time
+ * rises well above the shortest one seen, which means packets are queueing somewhere on the path.
+ * Snapshots only carry as many entity states as the client's token bucket holds bytes for, so a
+ * client on a slow or lossy connection gets fewer updates while a healthy one gets every tick.
+ */
+public class SendRateController {
+    private static final long MIN_BYTES_PER_SECOND = 4 * 1024;
+    private static final long INITIAL_BYTES_PER_SECOND = 32 * 1024;
+    private static final long ADDITIVE_INCREASE = 4 * 1024;
+    private static final double MULTIPLICATIVE_DECREASE = 0.7;
+    // Queueing delay tolerated on top of the shortest round trip before the path counts as congested
+    private static final long QUEUEING_DELAY_TOLERANCE = 25_000_000L;
+    // The bucket holds a few ticks worth of bytes but always at least one full datagram
+    private static final double BURST_SECONDS = 0.05;
+    private static final long MIN_BURST_BYTES = 1500;
+
+    private long bytesPerSecond = Math.min(INITIAL_BYTES_PER_SECOND, GameSettings.MAX_CLIENT_BYTES_PER_SECOND);
+    private double availableBytes = MIN_BURST_BYTES;
+    private long lastRefillTime = System.nanoTime();
+
+    private long lastLostPingCount = 0;
+    private long lastDecreaseTime = Long.MIN_VALUE;
+
+    private long sentBytes = 0;
+
+    /**
+     * Adjusts the rate to a new measurement of the client's connection
+     * @param connectionStats the client's connection measurements
+     * @param now the current time in nanoseconds
+     */
+    public void onConnectionMeasured(ConnectionStats connectionStats, long now) {
+        long lostPingCount = connectionStats.getLostPingCount();
+        long roundTripTime = connectionStats.getRoundTripTime();
+        boolean congested = lostPingCount > lastLostPingCount
+                || roundTripTime > 2 * connectionStats.getMinRoundTripTime() + QUEUEING_DELAY_TOLERANCE;
+        lastLostPingCount = lostPingCount;
+
+        if (congested) {
+            // Cut at most once per round trip since the earlier cut has not taken effect before that
+            if (lastDecreaseTime == Long.MIN_VALUE || now - lastDecreaseTime >= roundTripTime) {
+                bytesPerSecond = Math.max(MIN_BYTES_PER_SECOND, (long) (bytesPerSecond * MULTIPLICATIVE_DECREASE));
+                lastDecreaseTime = now;
+            }
+        } else {
+            bytesPerSecond = Math.min(GameSettings.MAX_CLIENT_BYTES_PER_SECOND, bytesPerSecond + ADDITIVE_INCREASE);
+        }
+    }
+
+    /**
+     * Gets the bytes the budget currently allows
+     * @param now the current time in nanoseconds
+     * @return the number of bytes, which is negative while reliable messages are being paid off
+     */
+    public double getAvailableBytes(long now) {
+        refill(now);
+        return availableBytes;
+    }
+
+    /**
+     * Takes bytes from the budget for datagrams that were sent
+     * @param bytes the size of the datagrams
+     * @param now the current time in nanoseconds
+     */
+    public void charge(int bytes, long now) {
+        refill(now);
+        // The debt is bounded so a burst of resends or of starving entities delays snapshots by at most one bucket's worth
+        availableBytes = Math.max(-getBurstBytes(), availableBytes - bytes);
+        sentBytes += bytes;
+    }
+
+    /**
+     * Helper method to add the bytes earned since the last refill
+     */
+    private void refill(long now) {
+        availableBytes = Math.min(getBurstBytes(), availableBytes + bytesPerSecond * (now - lastRefillTime) / 1e9);
+        lastRefillTime = now;
+    }
+
+    /**
+     * Helper method to get the most bytes the bucket holds
+     */
+    private double getBurstBytes() {
+        return Math.max(MIN_BURST_BYTES, bytesPerSecond * BURST_SECONDS);
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Gets the number of bytes sent to the client
+     * @return the number of bytes
+     */
+    public long getSentBytes() {
+        return sentBytes;
+    }
+}
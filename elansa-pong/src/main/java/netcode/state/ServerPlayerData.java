@@ -1,21 +1,62 @@
 package netcode.state;
 
+import game.GameSettings;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import netcode.packets.EntityState;
+import netcode.packets.MessageCompressor;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
 
 /**
  * Holds relevant information the server needs to maintain for each connected client
  */
 public class ServerPlayerData {
     private boolean isReady = false;
-    private int udpPort;
+    // The map is sent at most once to each client
+    private boolean mapSent = false;
+    private InetSocketAddress udpAddress;
+    private int sessionToken;
     private int playerNumber;
     private long lastReceivedSequenceNumber = -1;
     private ChannelHandlerContext tcpCtx;
+    // When the client's TCP channel became unwritable as reported by its event loop, 0 while it is writable
+    private long unwritableSince = 0;
+    // Set once the client was found too slow so it is only disconnected once
+    private boolean disconnecting = false;
+
+    // The latest state of each entity the client has acknowledged, indexed by entity id
+    private long[] baselineSequenceNumbers = new long[0];
+    private double[][] baselineStates = new double[0][];
+
+    private ReliableSender reliableSender;
+    private ConnectionStats connectionStats = new ConnectionStats();
+    private SendRateController sendRateController = new SendRateController();
+    private PriorityAccumulator priorityAccumulator = new PriorityAccumulator();
+    private DatagramBucket datagramBucket = new DatagramBucket();
 
-    public ServerPlayerData(int udpPort, int playerNumber, ChannelHandlerContext tcpCtx) {
-        this.udpPort = udpPort;
+    // For recent snapshots which of their entities were sent to the client, indexed by sequence number
+    private long[] sentSequenceNumbers = new long[EntityState.MAX_BASELINE_AGE + 1];
+    private boolean[][] sentEntities = new boolean[EntityState.MAX_BASELINE_AGE + 1][];
+
+    /**
+     * Creates the data for a newly connected client
+     * @param udpAddress the resolved address the client receives UDP packets on
+     * @param sessionToken the token the client puts in every packet it sends over UDP
+     * @param playerNumber the player the client controls
+     * @param tcpCtx the client's tcp connection
+     * @param compressionEnabled whether large reliable messages are compressed for the client
+     */
+    public ServerPlayerData(InetSocketAddress udpAddress, int sessionToken, int playerNumber, ChannelHandlerContext tcpCtx,
+                            boolean compressionEnabled) {
+        this.udpAddress = udpAddress;
+        this.sessionToken = sessionToken;
         this.playerNumber = playerNumber;
         this.tcpCtx = tcpCtx;
+        reliableSender = new ReliableSender(
+                compressionEnabled ? new MessageCompressor(GameSettings.COMPRESSION_THRESHOLD_BYTES) : null
+        );
     }
 
     public void setReady(boolean ready) {
@@ -26,8 +67,20 @@ public class ServerPlayerData {
         return isReady;
     }
 
-    public int getUdpPort() {
-        return udpPort;
+    public boolean isMapSent() {
+        return mapSent;
+    }
+
+    public void setMapSent(boolean mapSent) {
+        this.mapSent = mapSent;
+    }
+
+    public InetSocketAddress getUdpAddress() {
+        return udpAddress;
+    }
+
+    public int getSessionToken() {
+        return sessionToken;
     }
 
     public int getPlayerNumber() {
@@ -45,4 +98,120 @@ public class ServerPlayerData {
     public void setLastReceivedSequenceNumber(long lastReceivedSequenceNumber) {
         this.lastReceivedSequenceNumber = lastReceivedSequenceNumber;
     }
+
+    public long getUnwritableSince() {
+        return unwritableSince;
+    }
+
+    public void setUnwritableSince(long unwritableSince) {
+        this.unwritableSince = unwritableSince;
+    }
+
+    public boolean isDisconnecting() {
+        return disconnecting;
+    }
+
+    public void setDisconnecting(boolean disconnecting) {
+        this.disconnecting = disconnecting;
+    }
+
+    /**
+     * Estimates the bytes Netty holds for the client's TCP channel that the socket did not take yet
+     * from how far they are from the channel's write buffer watermarks
+     * @return the number of bytes
+     */
+    public long getTcpPendingBytes() {
+        Channel channel = tcpCtx.channel();
+        if (!channel.isActive()) {
+            return 0;
+        }
+        if (channel.isWritable()) {
+            return Math.max(0, channel.config().getWriteBufferHighWaterMark() - channel.bytesBeforeUnwritable());
+        }
+        return channel.config().getWriteBufferLowWaterMark() + channel.bytesBeforeWritable();
+    }
+
+    /**
+     * Records that the client received an entity's state, keeping it as the entity's baseline
+     * if it is newer than the current one
+     * @param id the entity's id
+     * @param sequenceNumber the synchronization that carried the state
+     * @param state the full state that was sent
+     */
+    public void acknowledgeState(int id, long sequenceNumber, double[] state) {
+        if (getBaselineSequenceNumber(id) < sequenceNumber) {
+            if (id >= baselineSequenceNumbers.length) {
+                int length = baselineSequenceNumbers.length;
+                baselineSequenceNumbers = Arrays.copyOf(baselineSequenceNumbers, id + 1);
+                Arrays.fill(baselineSequenceNumbers, length, id + 1, EntityState.NO_BASELINE);
+                baselineStates = Arrays.copyOf(baselineStates, id + 1);
+            }
+            baselineSequenceNumbers[id] = sequenceNumber;
+            baselineStates[id] = state;
+        }
+    }
+
+    /**
+     * Gets the synchronization holding the entity's baseline
+     * @param id the entity's id
+     * @return the sequence number or EntityState.NO_BASELINE if the client has not acknowledged the entity
+     */
+    public long getBaselineSequenceNumber(int id) {
+        return id < baselineSequenceNumbers.length ? baselineSequenceNumbers[id] : EntityState.NO_BASELINE;
+    }
+
+    public double[] getBaselineState(int id) {
+        return id < baselineStates.length ? baselineStates[id] : null;
+    }
+
+    /**
+     * Records which entities of a snapshot were sent to the client
+     * @param sequenceNumber the snapshot's sequence number
+     * @param sent for each entity of the snapshot whether it was sent
+     */
+    public void recordSentEntities(long sequenceNumber, boolean[] sent) {
+        int slot = (int) (sequenceNumber % sentSequenceNumbers.length);
+        sentSequenceNumbers[slot] = sequenceNumber;
+        sentEntities[slot] = sent;
+    }
+
+    /**
+     * Checks whether an entity of a recent snapshot was sent to the client
+     * @param sequenceNumber the snapshot's sequence number
+     * @param index the entity's position in the snapshot
+     * @return true if the entity's state was sent
+     */
+    public boolean wasSent(long sequenceNumber, int index) {
+        int slot = (int) (sequenceNumber % sentSequenceNumbers.length);
+        return sentSequenceNumbers[slot] == sequenceNumber && sentEntities[slot] != null && sentEntities[slot][index];
+    }
+
+    /**
+     * Releases what the client's data holds outside of the heap, once the client was dropped
+     */
+    public void close() {
+        if (reliableSender.getCompressor() != null) {
+            reliableSender.getCompressor().close();
+        }
+    }
+
+    public ReliableSender getReliableSender() {
+        return reliableSender;
+    }
+
+    public ConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
+    public SendRateController getSendRateController() {
+        return sendRateController;
+    }
+
+    public PriorityAccumulator getPriorityAccumulator() {
+        return priorityAccumulator;
+    }
+
+    public DatagramBucket getDatagramBucket() {
+        return datagramBucket;
+    }
 }
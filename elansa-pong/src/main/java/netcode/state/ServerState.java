@@ -1,11 +1,17 @@
 package netcode.state;
 
 import engine.Entity;
+import engine.RealTimeClock;
+import engine.SimulationClock;
 import game.AbstractLocalGame;
 import game.GameEventHandler;
+import game.GameSettings;
+import game.Player;
 import game.ui.PlayLocalGame;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import netcode.DatagramBatcher;
 import netcode.packets.*;
 
 import java.io.File;
@@ -14,22 +20,57 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Holds the server's game and the sessions of its clients. Everything here is only changed on the
+ * simulation's event loop: the TCP and UDP handlers hand what they receive to it with
+ * GameServer.runOnSimulationLoop. The receive threads only read the session table through the
+ * DatagramFilter, which is why that table is concurrent.
+ */
 public class ServerState {
-    private static final int CHUNK_SIZE = 5;
+    private static final long CLIENT_ACK_DELAY = 20_000_000L;
+    // Marks entities left out of a client's snapshot when grouping clients
+    private static final long NOT_SENT = Long.MIN_VALUE;
+    // Room left in a datagram for the reliable batch and map chunk headers
+    private static final int MAP_CHUNK_OVERHEAD_BYTES = 32;
+    // Time between the game over and closing the clients' connections
+    private static final long DISCONNECT_DELAY_MILLIS = 250;
     private boolean gameStarted = false;
 
     private File gameMap;
+    // The map file's contents, which the game is decoded from again for every game
+    private byte[] mapBytes;
+    // The map's static entities in PacketCodec's format, which clients without a cached copy download, and their hash
+    private byte[] staticEntityBytes;
+    private byte[] mapHash;
     private AbstractLocalGame localGame;
 
+    private SimulationClock clock;
+
     private AtomicLong sequenceNumber = new AtomicLong(0);
+    private SnapshotHistory snapshotHistory = new SnapshotHistory();
+    private SnapshotPacker snapshotPacker = new SnapshotPacker(GameSettings.MAX_DATAGRAM_BYTES);
+    private Channel udpChannel;
+    private DatagramBatcher datagramBatcher;
 
     private ConcurrentHashMap<SocketAddress, ServerPlayerData> playerDataMap = new ConcurrentHashMap<>();
+    // The same player data indexed by the address clients send UDP packets from
+    private ConcurrentHashMap<InetSocketAddress, ServerPlayerData> udpSessions = new ConcurrentHashMap<>();
+    // Checked by the UDP receive threads before a datagram is decoded
+    private DatagramFilter datagramFilter = new DatagramFilter(udpSessions);
+    private SecureRandom sessionTokenGenerator = new SecureRandom();
+    private long lastReportTime = System.nanoTime();
+    // Set by events that change the board so that one critical synchronization covers all the events of a tick
+    private boolean synchronizationPending = false;
     private ConcurrentLinkedDeque<Integer> availableAssignments = new ConcurrentLinkedDeque<Integer>(Arrays.asList(0, 1, 2, 3));
 
     GameEventHandler localGameEventHandler = new GameEventHandler() {
@@ -42,18 +83,18 @@ public class ServerState {
         @Override
         public void onPlayerElimination(int eliminatedPlayer) {
             System.out.println("Player eliminated");
-            sendSynchronization();
+            requestSynchronization();
             for (ServerPlayerData playerData : playerDataMap.values()) {
-                playerData.getTcpCtx().writeAndFlush(new PlayerEliminated(eliminatedPlayer));
+                playerData.getReliableSender().send(new PlayerEliminated(eliminatedPlayer));
             }
         }
 
         @Override
         public void onLifeChange(int[] newLives, boolean[] activePlayers) {
             System.out.println("Life changed");
-            sendSynchronization();
+            requestSynchronization();
             for (ServerPlayerData playerData : playerDataMap.values()) {
-                playerData.getTcpCtx().writeAndFlush(new LivesUpdate(newLives, activePlayers));
+                playerData.getReliableSender().send(new LivesUpdate(newLives, activePlayers));
             }
         }
     };
@@ -65,8 +106,23 @@ public class ServerState {
      * @throws ClassNotFoundException
      */
     public ServerState(File gameMap) throws IOException, ClassNotFoundException {
+        this(gameMap, new RealTimeClock());
+    }
+
+    /**
+     * Generates the initially server state
+     * @param gameMap the game map the server should host
+     * @param clock the clock that drives the hosted game
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public ServerState(File gameMap, SimulationClock clock) throws IOException, ClassNotFoundException {
         this.gameMap = gameMap;
-        localGame = Serializer.readGameMapFromFile(gameMap);
+        this.clock = clock;
+        mapBytes = Files.readAllBytes(gameMap.toPath());
+        localGame = Serializer.readGameMap(mapBytes);
+        staticEntityBytes = Serializer.getStaticEntityBytes(localGame.getStaticEntityCatalog());
+        mapHash = MapCache.hash(staticEntityBytes);
         localGame.setGameEventHandler(localGameEventHandler);
     }
 
@@ -76,7 +132,11 @@ public class ServerState {
      */
     private void sendGameOver(String message) {
         for (ServerPlayerData playerData : playerDataMap.values()) {
-            playerData.getTcpCtx().writeAndFlush(new GameOver(message));
+            playerData.getReliableSender().send(new GameOver(message));
+        }
+        // The last elimination and lives update of the game go out ahead of it before the clients are dropped
+        if (queueReliableMessages()) {
+            datagramBatcher.flush();
         }
         resetServer();
     }
@@ -87,34 +147,81 @@ public class ServerState {
     private void resetServer() {
         System.out.println("Restarting server ...");
         gameStarted = false;
-        // Retrieve game map to get a clean version of the game
+        // Decode the game map again to get a clean version of the game
         try {
-            localGame = Serializer.readGameMapFromFile(gameMap);
+            localGame = Serializer.readGameMap(mapBytes);
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
         }
         localGame.setGameEventHandler(localGameEventHandler);
 
         sequenceNumber = new AtomicLong(0);
+        snapshotHistory.clear();
+        synchronizationPending = false;
+        disconnectAllClients();
+        for (ServerPlayerData playerData : playerDataMap.values()) {
+            playerData.close();
+        }
         playerDataMap.clear();
+        udpSessions.clear();
         availableAssignments = new ConcurrentLinkedDeque<Integer>(Arrays.asList(0, 1, 2, 3));
+    }
 
-        disconnectAllClients();
+    /**
+     * Sets the channel the server sends UDP packets over
+     * @param udpChannel the server's udp channel
+     */
+    public void setUdpChannel(Channel udpChannel) {
+        this.udpChannel = udpChannel;
+        datagramBatcher = new DatagramBatcher(udpChannel);
+    }
+
+    /**
+     * Gets the filter the UDP receive threads check datagrams with before decoding them
+     * @return the filter
+     */
+    public DatagramFilter getDatagramFilter() {
+        return datagramFilter;
+    }
+
+    /**
+     * Helper method to have the entire board state sent at the end of the current tick.
+     * A goal can raise a life change, an elimination and a disconnect in the same tick,
+     * and a single critical synchronization taken after all of them replaces the earlier ones.
+     */
+    private void requestSynchronization() {
+        synchronizationPending = true;
     }
 
     /**
-     * Sends to all client over TCP the entire board state
+     * Helper method to send the critical synchronization requested during the tick, if any
+     */
+    private void sendPendingSynchronization() {
+        if (synchronizationPending) {
+            synchronizationPending = false;
+            sendSynchronization();
+        }
+    }
+
+    /**
+     * Sends to all client over the reliable channel the entire board state.
+     * Clients have the map so static entities are only referred to by id.
      */
     private void sendSynchronization() {
-        ArrayList<Entity> entities = new ArrayList<>(localGame.getStaticEntities());
-        entities.addAll(localGame.getDynamicEntities());
+        int[] staticEntityIds = new int[localGame.getStaticEntities().size()];
+        for (int i = 0; i < staticEntityIds.length; i++) {
+            staticEntityIds[i] = localGame.getStaticEntities().get(i).getId();
+        }
+        ArrayList<Entity> entities = new ArrayList<>(localGame.getDynamicEntities());
         for (int i = 0; i < localGame.getActivePlayers().length; i++) {
             if (localGame.getActivePlayers()[i]) {
                 entities.add(localGame.getPlayers()[i]);
             }
         }
+        // Carries the last non-critical sequence number so that clients skip older states
+        Synchronization synchronization = new Synchronization(staticEntityIds, entities, sequenceNumber.get() - 1);
         for (ServerPlayerData playerData : playerDataMap.values()) {
-            playerData.getTcpCtx().writeAndFlush(new Synchronization(entities, true, -1));
+            playerData.getReliableSender().send(synchronization);
         }
     }
 
@@ -123,8 +230,134 @@ public class ServerState {
      */
     public void updateLocalGame() {
         if (gameStarted) {
-            localGame.updateState(System.nanoTime());
+            localGame.updateState(clock.tick());
+        }
+        // Events raised by the game are sent right away rather than with the next broadcast
+        sendPendingSynchronization();
+        boolean queued = queueReliableMessages();
+        queued |= queuePings();
+        if (queued) {
+            datagramBatcher.flush();
         }
+        disconnectSlowClients();
+        reportConnections();
+    }
+
+    /**
+     * Helper method to disconnect the clients that fall too far behind on what the server sends them.
+     * A client that leaves reliable messages unacknowledged or stops reading its TCP channel would
+     * otherwise make the server buffer messages for it without bound.
+     */
+    private void disconnectSlowClients() {
+        long now = System.nanoTime();
+        long timeout = GameSettings.SLOW_CLIENT_TIMEOUT_MILLIS * 1_000_000L;
+        for (ServerPlayerData playerData : playerDataMap.values()) {
+            if (playerData.isDisconnecting()) {
+                continue;
+            }
+            ReliableSender reliableSender = playerData.getReliableSender();
+            String reason = null;
+            if (reliableSender.getPendingBytes() > GameSettings.MAX_PENDING_RELIABLE_BYTES) {
+                reason = String.format("%d bytes of reliable messages unacknowledged", reliableSender.getPendingBytes());
+            } else if (reliableSender.getOldestPendingAge(now) > timeout) {
+                reason = "reliable messages unacknowledged for too long";
+            } else if (playerData.getUnwritableSince() != 0 && now - playerData.getUnwritableSince() > timeout) {
+                reason = String.format("TCP channel unwritable with %d bytes buffered", playerData.getTcpPendingBytes());
+            }
+            if (reason != null) {
+                System.out.printf("Player %d is too slow (%s), disconnecting%n", playerData.getPlayerNumber() + 1, reason);
+                playerData.setDisconnecting(true);
+                // The session is removed when the channel becomes inactive
+                playerData.getTcpCtx().close();
+            }
+        }
+    }
+
+    /**
+     * Helper method to queue a ping to every client whose next ping is due
+     * @return true if any ping was queued
+     */
+    private boolean queuePings() {
+        if (datagramBatcher == null) {
+            return false;
+        }
+
+        boolean queued = false;
+        long now = System.nanoTime();
+        for (ServerPlayerData playerData : playerDataMap.values()) {
+            ConnectionStats connectionStats = playerData.getConnectionStats();
+            if (!connectionStats.isPingDue(now)) {
+                continue;
+            }
+            ByteBuf encoded = Serializer.encodeDirect(udpChannel.alloc(), connectionStats.createPing(playerData.getSessionToken(), now));
+            try {
+                datagramBatcher.add(playerData.getUdpAddress(), encoded);
+            } finally {
+                encoded.release();
+            }
+            queued = true;
+        }
+        return queued;
+    }
+
+    /**
+     * Helper method to periodically print the measurements of every client's connection
+     */
+    private void reportConnections() {
+        long now = System.nanoTime();
+        if (GameSettings.CONNECTION_REPORT_INTERVAL_MILLIS <= 0
+                || now - lastReportTime < GameSettings.CONNECTION_REPORT_INTERVAL_MILLIS * 1_000_000L) {
+            return;
+        }
+        lastReportTime = now;
+        for (ServerPlayerData playerData : playerDataMap.values()) {
+            MessageCompressor compressor = playerData.getReliableSender().getCompressor();
+            System.out.printf("Player %d: %s, %d reliable messages resent, %d superseded, %d bytes buffered (%d reliable, %d TCP), "
+                            + "rate %d KB/s, %d entity updates deferred, %s%n",
+                    playerData.getPlayerNumber() + 1,
+                    playerData.getConnectionStats(),
+                    playerData.getReliableSender().getResentCount(),
+                    playerData.getReliableSender().getSupersededCount(),
+                    playerData.getReliableSender().getPendingBytes() + playerData.getTcpPendingBytes(),
+                    playerData.getReliableSender().getPendingBytes(),
+                    playerData.getTcpPendingBytes(),
+                    playerData.getSendRateController().getBytesPerSecond() / 1024,
+                    playerData.getPriorityAccumulator().getDeferredCount(),
+                    compressor == null ? "compression off" : compressor.toString());
+        }
+        if (datagramFilter.getDroppedCount() > 0) {
+            System.out.printf("UDP: %s%n", datagramFilter);
+        }
+    }
+
+    /**
+     * Helper method to queue the reliable messages that are due to be sent or resent to every client
+     * @return true if any message was queued
+     */
+    private boolean queueReliableMessages() {
+        if (datagramBatcher == null) {
+            return false;
+        }
+
+        boolean queued = false;
+        long now = System.nanoTime();
+        for (ServerPlayerData playerData : playerDataMap.values()) {
+            if (playerData.getReliableSender().getPendingCount() == 0) {
+                continue;
+            }
+            for (ReliableBatch batch : playerData.getReliableSender().collectDueBatches(now)) {
+                ByteBuf encoded = Serializer.encodeDirect(udpChannel.alloc(), batch);
+                try {
+                    // Reliable messages are always sent but leave less of the budget for snapshots
+                    playerData.getSendRateController().charge(encoded.readableBytes(), now);
+                    datagramBatcher.add(playerData.getUdpAddress(), encoded);
+                } finally {
+                    encoded.release();
+                }
+                queued = true;
+            }
+        }
+        return queued;
     }
 
     /**
@@ -133,11 +366,6 @@ public class ServerState {
      */
     public void broadcastGameState(Channel udpChannel) {
         if (gameStarted) {
-            ArrayList<Entity>[] chunks = new ArrayList[CHUNK_SIZE];
-            for (int i = 0; i < CHUNK_SIZE; i++) {
-                chunks[i] = new ArrayList<>();
-            }
-
             // Get items
             ArrayList<Entity> dynamicEntities = new ArrayList<>(localGame.getDynamicEntities());
             for (int i = 0; i < localGame.getActivePlayers().length; i++) {
@@ -145,24 +373,121 @@ public class ServerState {
                     dynamicEntities.add(localGame.getPlayers()[i]);
                 }
             }
-            // Distribute into chunks
-            for (int i = 0; i < dynamicEntities.size(); i++) {
-                chunks[i % CHUNK_SIZE].add(dynamicEntities.get(i));
+
+            if (datagramBatcher == null) {
+                setUdpChannel(udpChannel);
+            }
+
+            // The whole tick is one snapshot identified by its sequence number
+            StateQuantizer quantizer = new StateQuantizer(GameSettings.SNAPSHOT_POSITION_BITS, GameSettings.SNAPSHOT_VELOCITY_BITS);
+            long newSequenceNumber = sequenceNumber.getAndIncrement();
+            int[] ids = new int[dynamicEntities.size()];
+            ArrayList<double[]> states = new ArrayList<>(dynamicEntities.size());
+            ArrayList<int[]> fieldKinds = new ArrayList<>(dynamicEntities.size());
+            for (int i = 0; i < ids.length; i++) {
+                Entity entity = dynamicEntities.get(i);
+                double[] state = new double[entity.getStateSize()];
+                entity.writeState(state, 0);
+                int[] kinds = StateQuantizer.getFieldKinds(entity);
+                // Keep what the clients will decode so that baselines match on both ends
+                quantizer.round(state, kinds);
+                ids[i] = entity.getId();
+                states.add(state);
+                fieldKinds.add(kinds);
+            }
+            snapshotHistory.record(newSequenceNumber, ids, states);
+
+            // Each client gets the entities its budget allows, picked by their priority to that client.
+            // States are built once per entity and baseline and shared between the clients using them.
+            long now = System.nanoTime();
+            ArrayList<HashMap<Long, EntityState>> entityStateCache = new ArrayList<>(ids.length);
+            ArrayList<HashMap<Long, Integer>> sizeCache = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                entityStateCache.add(new HashMap<>());
+                sizeCache.add(new HashMap<>());
+            }
+            // Clients that acknowledged the same baselines and were picked the same entities receive the same packets
+            HashMap<ArrayList<Long>, ArrayList<ServerPlayerData>> recipientGroups = new HashMap<>();
+            for (ServerPlayerData playerData : playerDataMap.values()) {
+                long[] baselineSequenceNumbers = new long[ids.length];
+                int[] sizes = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    long baselineSequenceNumber = playerData.getBaselineSequenceNumber(ids[i]);
+                    if (newSequenceNumber - baselineSequenceNumber > EntityState.MAX_BASELINE_AGE) {
+                        baselineSequenceNumber = EntityState.NO_BASELINE;
+                    }
+                    baselineSequenceNumbers[i] = baselineSequenceNumber;
+
+                    // Only send what changed since the state the client last acknowledged
+                    EntityState entityState = entityStateCache.get(i).get(baselineSequenceNumber);
+                    if (entityState == null) {
+                        if (baselineSequenceNumber != EntityState.NO_BASELINE) {
+                            entityState = EntityState.delta(
+                                    ids[i],
+                                    states.get(i),
+                                    fieldKinds.get(i),
+                                    baselineSequenceNumber,
+                                    playerData.getBaselineState(ids[i])
+                            );
+                        } else {
+                            entityState = new EntityState(ids[i], states.get(i), fieldKinds.get(i));
+                        }
+                        entityStateCache.get(i).put(baselineSequenceNumber, entityState);
+                        sizeCache.get(i).put(baselineSequenceNumber, snapshotPacker.measure(entityState, newSequenceNumber, quantizer));
+                    }
+                    sizes[i] = sizeCache.get(i).get(baselineSequenceNumber);
+                }
+
+                int playerNumber = playerData.getPlayerNumber();
+                Player ownPlayer = localGame.getActivePlayers()[playerNumber] ? localGame.getPlayers()[playerNumber] : null;
+                double budgetBytes = playerData.getSendRateController().getAvailableBytes(now) - SnapshotPacker.getFragmentHeaderBytes();
+                boolean[] selected = playerData.getPriorityAccumulator().select(dynamicEntities, sizes, newSequenceNumber, ownPlayer, budgetBytes);
+                playerData.recordSentEntities(newSequenceNumber, selected);
+
+                ArrayList<Long> groupKey = new ArrayList<>(ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    groupKey.add(selected[i] ? baselineSequenceNumbers[i] : NOT_SENT);
+                }
+                recipientGroups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(playerData);
             }
 
-            // Broadcast each chunk
-            for (ArrayList<Entity> chunk : chunks) {
-                long newSequenceNumber = sequenceNumber.getAndIncrement();
-                for (ServerPlayerData playerData : playerDataMap.values()) {
-                    InetSocketAddress address = (InetSocketAddress) playerData.getTcpCtx().channel().remoteAddress();
-                    Serializer.sendPacketUdp(
-                            udpChannel,
-                            address.getHostName(),
-                            playerData.getUdpPort(),
-                            new Synchronization(chunk, false, newSequenceNumber)
-                    );
+            for (ArrayList<Long> groupKey : recipientGroups.keySet()) {
+                ArrayList<EntityState> entityStates = new ArrayList<>(ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    if (groupKey.get(i) != NOT_SENT) {
+                        entityStates.add(entityStateCache.get(i).get(groupKey.get(i)));
+                    }
+                }
+                if (entityStates.isEmpty() && ids.length != 0) {
+                    // The budget is used up so the clients get nothing this tick
+                    continue;
+                }
+
+                // Encode once and share the buffers between the recipients
+                ArrayList<ByteBuf> fragments = new ArrayList<>();
+                int snapshotBytes = 0;
+                for (Synchronization fragment : snapshotPacker.pack(entityStates, newSequenceNumber, quantizer)) {
+                    ByteBuf encoded = Serializer.encodeDirect(udpChannel.alloc(), fragment);
+                    fragments.add(encoded);
+                    snapshotBytes += encoded.readableBytes();
+                }
+                try {
+                    for (ServerPlayerData playerData : recipientGroups.get(groupKey)) {
+                        playerData.getSendRateController().charge(snapshotBytes, now);
+                        for (ByteBuf encoded : fragments) {
+                            datagramBatcher.add(playerData.getUdpAddress(), encoded);
+                        }
+                    }
+                } finally {
+                    for (ByteBuf encoded : fragments) {
+                        encoded.release();
+                    }
                 }
             }
+            // Send the whole tick at once
+            sendPendingSynchronization();
+            queueReliableMessages();
+            datagramBatcher.flush();
         }
     }
 
@@ -171,7 +496,9 @@ public class ServerState {
      */
     private void disconnectAllClients() {
         for (ServerPlayerData playerData : playerDataMap.values()) {
-            playerData.getTcpCtx().close();
+            ChannelHandlerContext ctx = playerData.getTcpCtx();
+            // Closed a little later so that the datagrams flushed just before arrive ahead of the disconnection
+            ctx.executor().schedule(() -> ctx.close(), DISCONNECT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -190,9 +517,56 @@ public class ServerState {
         System.out.println(availableAssignments);
         int playerNumber = availableAssignments.pop();
         localGame.activatePlayer(playerNumber, false);
-        playerDataMap.put(ctx.channel().remoteAddress(), new ServerPlayerData(connect.getUdpPort(), playerNumber, ctx));
-        ctx.writeAndFlush(new PlayerAssignment(playerNumber, localGame.getPlayers()[playerNumber]));
-        sendSynchronization();
+        // The client sends UDP packets from the same host it connected from, so no name lookup is needed
+        InetSocketAddress tcpAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+        InetSocketAddress udpAddress = new InetSocketAddress(tcpAddress.getAddress(), connect.getUdpPort());
+        // Compression is used when the client offered it and the server has not turned it off
+        boolean compressionEnabled = connect.isCompressionSupported() && GameSettings.COMPRESSION_THRESHOLD_BYTES > 0;
+        ServerPlayerData playerData = new ServerPlayerData(udpAddress, sessionTokenGenerator.nextInt(), playerNumber, ctx, compressionEnabled);
+        playerDataMap.put(ctx.channel().remoteAddress(), playerData);
+        udpSessions.put(udpAddress, playerData);
+        ctx.writeAndFlush(new PlayerAssignment(playerNumber, localGame.getPlayers()[playerNumber], playerData.getSessionToken(), mapHash));
+        requestSynchronization();
+    }
+
+    /**
+     * Invoked when a client does not have the hosted map in its cache. The map is queued on the
+     * client's reliable channel in chunks that each fit in a datagram, after the messages already
+     * queued, so the client holds on to critical synchronizations until the map is complete.
+     * @param ctx the client's tcp connection
+     * @param request the client's request
+     */
+    public void onMapRequest(ChannelHandlerContext ctx, MapRequest request) {
+        ServerPlayerData playerData = playerDataMap.get(ctx.channel().remoteAddress());
+        if (playerData == null || playerData.isMapSent()) {
+            return;
+        }
+        if (!Arrays.equals(request.getMapHash(), mapHash)) {
+            System.out.println("Client requested map " + MapCache.toHex(request.getMapHash()) + " which is not hosted");
+            return;
+        }
+        playerData.setMapSent(true);
+
+        int chunkBytes = GameSettings.MAX_DATAGRAM_BYTES - MAP_CHUNK_OVERHEAD_BYTES;
+        int chunkCount = (staticEntityBytes.length + chunkBytes - 1) / chunkBytes;
+        for (int i = 0; i < chunkCount; i++) {
+            byte[] data = Arrays.copyOfRange(staticEntityBytes, i * chunkBytes, Math.min(staticEntityBytes.length, (i + 1) * chunkBytes));
+            playerData.getReliableSender().send(new MapChunk(i, chunkCount, data));
+        }
+        System.out.printf("Sending map to player %d in %d chunks%n", playerData.getPlayerNumber() + 1, chunkCount);
+    }
+
+    /**
+     * Invoked when a client's TCP channel stopped or resumed taking writes
+     * @param ctx the client's tcp connection
+     * @param writable whether the channel is writable again
+     * @param time when the channel's event loop saw the change, in nanoseconds
+     */
+    public void onWritabilityChanged(ChannelHandlerContext ctx, boolean writable, long time) {
+        ServerPlayerData playerData = playerDataMap.get(ctx.channel().remoteAddress());
+        if (playerData != null) {
+            playerData.setUnwritableSince(writable ? 0 : time);
+        }
     }
 
     /**
@@ -202,6 +576,8 @@ public class ServerState {
     public void onPlayerDisconnect(ChannelHandlerContext ctx) {
         ServerPlayerData playerData = playerDataMap.remove(ctx.channel().remoteAddress());
         if (playerData != null) {
+            udpSessions.remove(playerData.getUdpAddress(), playerData);
+            playerData.close();
             // Trigger the player elimination mechanism as active player just left
             if (gameStarted) {
                 // Eliminated active players who disconnect
@@ -220,7 +596,7 @@ public class ServerState {
                 availableAssignments.push(playerData.getPlayerNumber());
                 localGame.deactivatePlayer(playerData.getPlayerNumber());
             }
-            sendSynchronization();
+            requestSynchronization();
         }
 
     }
@@ -252,24 +628,75 @@ public class ServerState {
      */
     public void onPlayerInput(InetSocketAddress sender, PlayerInput packet) {
         if (gameStarted) {
-            for (SocketAddress tcpSocket : playerDataMap.keySet()) {
-                InetSocketAddress tcpAddress = (InetSocketAddress) tcpSocket;
-                ServerPlayerData playerData = playerDataMap.get(tcpSocket);
-
-                // Find player data associated with packet received
-                if (tcpAddress.getHostName().equals(sender.getHostName()) && playerData.getUdpPort() == sender.getPort()) {
-                    // Check sequence number
-                    if (playerData.getLastReceivedSequenceNumber() < packet.getSequenceNumber()) {
-                        playerData.setLastReceivedSequenceNumber(packet.getSequenceNumber());
-                        localGame.getPlayers()[playerData.getPlayerNumber()].setPosition(packet.getPosition());
-                        localGame.getPlayers()[playerData.getPlayerNumber()].setDirection(packet.getDirection());
-                    }
-                    break;
-                }
+            ServerPlayerData playerData = findPlayerData(sender, packet.getSessionToken());
+            // Check sequence number
+            if (playerData != null && playerData.getLastReceivedSequenceNumber() < packet.getSequenceNumber()) {
+                playerData.setLastReceivedSequenceNumber(packet.getSequenceNumber());
+                localGame.getPlayers()[playerData.getPlayerNumber()].setPosition(packet.getPosition());
+                localGame.getPlayers()[playerData.getPlayerNumber()].setDirection(packet.getDirection());
             }
         }
     }
 
+    /**
+     * Invoked when a client acknowledges the synchronizations and reliable messages it has received
+     * @param sender the client's network address
+     * @param ack the acknowledgement
+     */
+    public void onSnapshotAck(InetSocketAddress sender, SnapshotAck ack) {
+        ServerPlayerData playerData = findPlayerData(sender, ack.getSessionToken());
+        if (playerData != null) {
+            snapshotHistory.acknowledge(ack, playerData);
+            playerData.getReliableSender().acknowledge(ack.getReliableSequenceNumber(), ack.getReliableAckBits());
+        }
+    }
+
+    /**
+     * Invoked when a client pings the server to measure its connection
+     * @param sender the client's network address
+     * @param ping the ping
+     */
+    public void onPing(InetSocketAddress sender, Ping ping) {
+        ServerPlayerData playerData = findPlayerData(sender, ping.getSessionToken());
+        if (playerData != null && udpChannel != null) {
+            // Answered right away rather than with the next tick so the client measures the network
+            Pong pong = ConnectionStats.createPong(playerData.getSessionToken(), ping, System.nanoTime());
+            Serializer.sendPacketUdp(udpChannel, playerData.getUdpAddress(), pong);
+        }
+    }
+
+    /**
+     * Invoked when a client answers one of the server's pings
+     * @param sender the client's network address
+     * @param pong the answer
+     */
+    public void onPong(InetSocketAddress sender, Pong pong) {
+        ServerPlayerData playerData = findPlayerData(sender, pong.getSessionToken());
+        long now = System.nanoTime();
+        if (playerData != null && playerData.getConnectionStats().onPong(pong, now)) {
+            // Resend lost messages as soon as their acknowledgement is overdue on this connection,
+            // allowing for clients only acknowledging once per frame
+            playerData.getReliableSender().setRetransmissionTimeout(
+                    playerData.getConnectionStats().getRetransmissionTimeout() + CLIENT_ACK_DELAY
+            );
+            playerData.getSendRateController().onConnectionMeasured(playerData.getConnectionStats(), now);
+        }
+    }
+
+    /**
+     * Helper method to find the player data associated with a packet received over UDP
+     * @param sender the client's udp address
+     * @param sessionToken the session token carried by the packet
+     * @return the player data or null if the sender is not a connected client or the token does not match
+     */
+    private ServerPlayerData findPlayerData(InetSocketAddress sender, int sessionToken) {
+        ServerPlayerData playerData = udpSessions.get(sender);
+        if (playerData == null || playerData.getSessionToken() != sessionToken) {
+            return null;
+        }
+        return playerData;
+    }
+
     public boolean isGameStarted() {
         return gameStarted;
     }
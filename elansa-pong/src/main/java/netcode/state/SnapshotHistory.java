@@ -0,0 +1,82 @@
+package netcode.state;
+
+import netcode.packets.EntityState;
+import netcode.packets.SnapshotAck;
+
+import java.util.ArrayList;
+
+/**
+ * Remembers the entity states the server sent in recent non-critical synchronizations
+ * so that an acknowledged sequence number can be turned back into a baseline.
+ * Only sequence numbers that can still be referenced by a delta are kept.
+ */
+public class SnapshotHistory {
+    private static final int CAPACITY = EntityState.MAX_BASELINE_AGE + 1;
+
+    private final long[] sequenceNumbers = new long[CAPACITY];
+    private final int[][] ids = new int[CAPACITY][];
+    private final double[][][] states = new double[CAPACITY][][];
+
+    public SnapshotHistory() {
+        clear();
+    }
+
+    /**
+     * Records the states sent in a synchronization, replacing the oldest entry
+     * @param sequenceNumber the synchronization's sequence number
+     * @param sentIds the ids of the entities that were sent
+     * @param sentStates the full states of the entities in the same order
+     */
+    public void record(long sequenceNumber, int[] sentIds, ArrayList<double[]> sentStates) {
+        int slot = (int) (sequenceNumber % CAPACITY);
+        sequenceNumbers[slot] = sequenceNumber;
+        ids[slot] = sentIds;
+        states[slot] = sentStates.toArray(new double[0][]);
+    }
+
+    /**
+     * Applies an acknowledgement to a client's baselines
+     * @param ack the acknowledgement received from the client
+     * @param playerData the client that sent the acknowledgement
+     */
+    public void acknowledge(SnapshotAck ack, ServerPlayerData playerData) {
+        long latest = ack.getLatestSequenceNumber();
+        acknowledge(latest, playerData);
+        for (int i = 0; i < 32; i++) {
+            if ((ack.getAckBits() & (1 << i)) != 0) {
+                acknowledge(latest - 1 - i, playerData);
+            }
+        }
+    }
+
+    /**
+     * Helper method to promote the states of one acknowledged synchronization to baselines
+     */
+    private void acknowledge(long sequenceNumber, ServerPlayerData playerData) {
+        if (sequenceNumber < 0) {
+            return;
+        }
+        int slot = (int) (sequenceNumber % CAPACITY);
+        if (sequenceNumbers[slot] != sequenceNumber) {
+            // Too old to be used as a baseline
+            return;
+        }
+        for (int i = 0; i < ids[slot].length; i++) {
+            // Entities left out of the client's snapshot were not received with it
+            if (playerData.wasSent(sequenceNumber, i)) {
+                playerData.acknowledgeState(ids[slot][i], sequenceNumber, states[slot][i]);
+            }
+        }
+    }
+
+    /**
+     * Forgets every recorded synchronization
+     */
+    public void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            sequenceNumbers[i] = EntityState.NO_BASELINE;
+            ids[i] = null;
+            states[i] = null;
+        }
+    }
+}
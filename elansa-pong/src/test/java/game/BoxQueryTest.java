@@ -0,0 +1,76 @@
+package game;
+
+import engine.CircleCollider;
+import engine.Collider;
+import engine.Entity;
+import netcode.packets.Serializer;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoxQueryTest {
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    public void boxesAtTheCenterOfABoundingBoxHitTheCollider() throws Exception {
+        AbstractLocalGame game = Serializer.readGameMapFromFile(new File("Spin.map"));
+        double[] bounds = new double[4];
+        for (Entity entity : getQueryableEntities(game)) {
+            for (Collider collider : entity.getColliders()) {
+                collider.computeBounds(bounds);
+                double x = (bounds[0] + bounds[2]) / 2;
+                double y = (bounds[1] + bounds[3]) / 2;
+                assertTrue(query(game, x, y, entity), entity.getName());
+            }
+        }
+    }
+
+    @Test
+    public void boxesInTheCornerOfABoundingBoxMissRoundAndRotatedColliders() throws Exception {
+        AbstractLocalGame game = Serializer.readGameMapFromFile(new File("Spin.map"));
+        double[] bounds = new double[4];
+        int checked = 0;
+        for (Entity entity : getQueryableEntities(game)) {
+            if (!(entity instanceof Ball) && !entity.getName().equals("Spinner2")) {
+                continue;
+            }
+            Collider collider = entity.getColliders().get(0);
+            collider.computeBounds(bounds);
+            // The bounding box's corner lies outside a circle and outside a square turned by 45 degrees
+            assertFalse(query(game, bounds[0] + EPSILON, bounds[1] + EPSILON, entity), entity.getName());
+            assertFalse(query(game, bounds[2] - EPSILON, bounds[3] - EPSILON, entity), entity.getName());
+            if (collider instanceof CircleCollider) {
+                CircleCollider circle = (CircleCollider) collider;
+                // Just inside the circle's rightmost point
+                double x = circle.getCenter().getX() + circle.getRadius() - 2 * EPSILON;
+                assertTrue(query(game, x, circle.getCenter().getY(), entity), entity.getName());
+            }
+            checked++;
+        }
+        assertTrue(checked >= 2);
+    }
+
+    /**
+     * Helper method to collect the entities a query visits, players being inactive until they join
+     */
+    private static ArrayList<Entity> getQueryableEntities(AbstractLocalGame game) {
+        ArrayList<Entity> entities = new ArrayList<>(game.getStaticEntities());
+        entities.addAll(game.getDynamicEntities());
+        return entities;
+    }
+
+    /**
+     * Helper method to query a tiny box around a point and check whether an entity was found
+     */
+    private static boolean query(AbstractLocalGame game, double x, double y, Entity entity) {
+        Entity[] results = new Entity[64];
+        int found = game.queryAabb(new double[]{x - EPSILON, y - EPSILON, x + EPSILON, y + EPSILON},
+                AbstractLocalGame.QUERY_ALL, results);
+        return Arrays.asList(results).subList(0, found).contains(entity);
+    }
+}
@@ -0,0 +1,95 @@
+package game;
+
+import engine.FixedStepClock;
+import netcode.packets.Serializer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class SnapshotRestoreTest {
+    private static final long STEP_NANOS = 1_000_000;
+    // The ball is thrown with a random direction 3 seconds into the game, between the snapshot and the end of the run
+    private static final int STEPS_BEFORE_SNAPSHOT = 1000;
+    private static final int STEPS_AFTER_SNAPSHOT = 6000;
+
+    @BeforeAll
+    public static void disableSound() {
+        GameSettings.SOUND_EFFECTS_ON = false;
+    }
+
+    @Test
+    public void restoredGamesReplayTheSameSteps() throws Exception {
+        AbstractLocalGame game = createGame(42);
+        FixedStepClock clock = new FixedStepClock(STEP_NANOS);
+        game.simulate(clock, STEPS_BEFORE_SNAPSHOT);
+        GameSnapshot saved = game.createSnapshot();
+        game.saveSnapshot(saved);
+        long savedTime = clock.getTime();
+
+        game.simulate(clock, STEPS_AFTER_SNAPSHOT);
+        GameSnapshot first = game.createSnapshot();
+        game.saveSnapshot(first);
+
+        game.restoreSnapshot(saved);
+        game.simulate(new FixedStepClock(STEP_NANOS, savedTime), STEPS_AFTER_SNAPSHOT);
+        GameSnapshot second = game.createSnapshot();
+        game.saveSnapshot(second);
+
+        // The run drew random numbers, so equal random states mean the restore rewound the generator
+        assertNotEquals(saved.getRandomState(), first.getRandomState());
+        assertFalse(Arrays.equals(saved.getEntityState(), first.getEntityState()));
+        assertSnapshotsEqual(first, second);
+    }
+
+    @Test
+    public void seededRunsProduceIdenticalTrajectories() throws Exception {
+        GameSnapshot first = run(createGame(7));
+        GameSnapshot second = run(createGame(7));
+        assertSnapshotsEqual(first, second);
+
+        GameSnapshot other = run(createGame(8));
+        assertFalse(Arrays.equals(first.getEntityState(), other.getEntityState()));
+    }
+
+    /**
+     * Helper method to load Spin with a seeded random number generator and four automated players
+     */
+    private static AbstractLocalGame createGame(long seed) throws Exception {
+        AbstractLocalGame game = Serializer.readGameMapFromFile(new File("Spin.map"));
+        game.setRandomSeed(seed);
+        for (int i = 0; i < game.getPlayers().length; i++) {
+            game.activatePlayer(i, true);
+        }
+        return game;
+    }
+
+    /**
+     * Helper method to play a game from its start and capture where it ends up
+     */
+    private static GameSnapshot run(AbstractLocalGame game) {
+        game.simulate(new FixedStepClock(STEP_NANOS), STEPS_BEFORE_SNAPSHOT + STEPS_AFTER_SNAPSHOT);
+        GameSnapshot snapshot = game.createSnapshot();
+        game.saveSnapshot(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Helper method to compare everything a snapshot holds
+     */
+    private static void assertSnapshotsEqual(GameSnapshot expected, GameSnapshot actual) {
+        assertArrayEquals(expected.getEntityState(), actual.getEntityState());
+        assertArrayEquals(expected.getTimers(), actual.getTimers());
+        assertArrayEquals(expected.getLives(), actual.getLives());
+        assertArrayEquals(expected.getActivePlayers(), actual.getActivePlayers());
+        assertArrayEquals(expected.getAutomatedPlayers(), actual.getAutomatedPlayers());
+        assertEquals(expected.getRandomState(), actual.getRandomState());
+        assertEquals(expected.isRandomSeeded(), actual.isRandomSeeded());
+    }
+}
@@ -0,0 +1,101 @@
+package netcode.packets;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BitStreamTest {
+    @Test
+    public void valuesCrossingByteBoundariesReadBack() {
+        int[] widths = {3, 7, 1, 13, 32, 5, 9, 2, 17, 31, 4, 8, 11, 6};
+        long[] values = new long[widths.length];
+        Random random = new Random(42);
+        ByteBuf buffer = Unpooled.buffer();
+        BitWriter writer = new BitWriter(buffer);
+        for (int i = 0; i < widths.length; i++) {
+            values[i] = random.nextLong() & ((1L << widths[i]) - 1);
+            writer.writeBits(values[i], widths[i]);
+        }
+        writer.flush();
+
+        int totalBits = 0;
+        for (int width : widths) {
+            totalBits += width;
+        }
+        assertEquals((totalBits + 7) / 8, buffer.readableBytes());
+
+        BitReader reader = new BitReader(buffer);
+        for (int i = 0; i < widths.length; i++) {
+            assertEquals(values[i], reader.readBits(widths[i]), "value " + i);
+        }
+    }
+
+    @Test
+    public void bitsAboveTheWidthAreNotWritten() {
+        ByteBuf buffer = Unpooled.buffer();
+        BitWriter writer = new BitWriter(buffer);
+        writer.writeBits(0xFF, 3);
+        writer.writeBits(0, 5);
+        writer.flush();
+        assertEquals(1, buffer.readableBytes());
+        assertEquals(0x07, buffer.getUnsignedByte(0));
+    }
+
+    @Test
+    public void doublesAreExactBetweenUnalignedBits() {
+        double[] doubles = {Math.PI, -0.0, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, -12345.6789};
+        ByteBuf buffer = Unpooled.buffer();
+        BitWriter writer = new BitWriter(buffer);
+        for (double value : doubles) {
+            writer.writeBits(1, 1);
+            writer.writeDouble(value);
+        }
+        writer.flush();
+
+        BitReader reader = new BitReader(buffer);
+        for (double value : doubles) {
+            assertEquals(1, reader.readBits(1));
+            assertEquals(Double.doubleToRawLongBits(value), Double.doubleToRawLongBits(reader.readDouble()));
+        }
+    }
+
+    @Test
+    public void alignSkipsThePaddingOfAFlushedWriter() {
+        ByteBuf buffer = Unpooled.buffer();
+        BitWriter writer = new BitWriter(buffer);
+        writer.writeBits(5, 3);
+        writer.flush();
+        buffer.writeShort(0x1234);
+        writer.writeBits(0x2AB, 10);
+        writer.flush();
+
+        BitReader reader = new BitReader(buffer);
+        assertEquals(5, reader.readBits(3));
+        reader.align();
+        assertEquals(0x1234, buffer.readUnsignedShort());
+        assertEquals(0x2AB, reader.readBits(10));
+    }
+
+    @Test
+    public void readingPastTheEndFails() {
+        ByteBuf buffer = Unpooled.buffer();
+        BitWriter writer = new BitWriter(buffer);
+        writer.writeBits(1, 4);
+        writer.flush();
+
+        BitReader reader = new BitReader(buffer);
+        reader.readBits(8);
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.readBits(1));
+    }
+
+    @Test
+    public void rejectsWidthsAbove32Bits() {
+        assertThrows(IllegalArgumentException.class, () -> new BitWriter(Unpooled.buffer()).writeBits(0, 33));
+        assertThrows(IllegalArgumentException.class, () -> new BitReader(Unpooled.buffer()).readBits(33));
+    }
+}
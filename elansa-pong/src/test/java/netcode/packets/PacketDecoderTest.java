@@ -0,0 +1,41 @@
+package netcode.packets;
+
+import game.GameSettings;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PacketDecoderTest {
+    @Test
+    public void framesSplitAcrossReadsAreJoined() {
+        EmbeddedChannel channel = new EmbeddedChannel(new PacketDecoder(), new PacketEncoder());
+        channel.writeOutbound(new Ready());
+        ByteBuf encoded = channel.readOutbound();
+
+        channel.writeInbound(encoded.readRetainedSlice(3));
+        assertNull(channel.readInbound());
+        channel.writeInbound(encoded.readRetainedSlice(encoded.readableBytes()));
+        assertTrue(channel.readInbound() instanceof Ready);
+        encoded.release();
+    }
+
+    @Test
+    public void negativeLengthsAreRejected() {
+        EmbeddedChannel channel = new EmbeddedChannel(new PacketDecoder());
+        ByteBuf frame = Unpooled.buffer().writeInt(-1).writeByte(0);
+        assertThrows(DecoderException.class, () -> channel.writeInbound(frame));
+    }
+
+    @Test
+    public void lengthsAboveTheMaximumAreRejectedBeforeTheFrameArrives() {
+        EmbeddedChannel channel = new EmbeddedChannel(new PacketDecoder());
+        ByteBuf frame = Unpooled.buffer().writeInt(GameSettings.MAX_TCP_FRAME_BYTES + 1);
+        assertThrows(DecoderException.class, () -> channel.writeInbound(frame));
+    }
+}
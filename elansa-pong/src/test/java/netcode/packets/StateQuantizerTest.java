@@ -0,0 +1,90 @@
+package netcode.packets;
+
+import engine.Entity;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StateQuantizerTest {
+    private static final int[] BIT_WIDTHS = {1, 4, 8, 12, 16, 24, 32};
+
+    @Test
+    public void positionsRoundTripWithinHalfAStep() {
+        for (int bits : BIT_WIDTHS) {
+            StateQuantizer quantizer = new StateQuantizer(bits, 16);
+            double halfStep = (StateQuantizer.POSITION_MAX - StateQuantizer.POSITION_MIN) / ((1L << bits) - 1) / 2;
+            assertEquals(halfStep, quantizer.getMaxError(Entity.STATE_POSITION), 1e-15);
+            for (double value = StateQuantizer.POSITION_MIN; value <= StateQuantizer.POSITION_MAX; value += 0.0137) {
+                assertRoundTrip(quantizer, Entity.STATE_POSITION, value, bits, halfStep);
+            }
+            assertRoundTrip(quantizer, Entity.STATE_POSITION, StateQuantizer.POSITION_MAX, bits, halfStep);
+        }
+    }
+
+    @Test
+    public void velocitiesRoundTripWithinHalfAStep() {
+        for (int bits : BIT_WIDTHS) {
+            StateQuantizer quantizer = new StateQuantizer(16, bits);
+            double halfStep = 2 * StateQuantizer.VELOCITY_LIMIT / ((1L << bits) - 1) / 2;
+            assertEquals(halfStep, quantizer.getMaxError(Entity.STATE_VELOCITY), 1e-15);
+            for (double value = -StateQuantizer.VELOCITY_LIMIT; value <= StateQuantizer.VELOCITY_LIMIT; value += 0.0113) {
+                assertRoundTrip(quantizer, Entity.STATE_VELOCITY, value, bits, halfStep);
+            }
+            assertRoundTrip(quantizer, Entity.STATE_VELOCITY, StateQuantizer.VELOCITY_LIMIT, bits, halfStep);
+        }
+    }
+
+    @Test
+    public void directionsAreExact() {
+        StateQuantizer quantizer = new StateQuantizer(16, 16);
+        for (int direction = -1; direction <= 1; direction++) {
+            int encoding = quantizer.getEncoding(Entity.STATE_DIRECTION, direction);
+            assertEquals(Entity.STATE_DIRECTION, encoding);
+            assertEquals(direction, quantizer.dequantize(encoding, quantizer.quantize(encoding, direction)));
+        }
+    }
+
+    @Test
+    public void valuesOutsideTheirRangeFallBackToRawDoubles() {
+        StateQuantizer quantizer = new StateQuantizer(16, 16);
+        assertEquals(Entity.STATE_OTHER, quantizer.getEncoding(Entity.STATE_POSITION, StateQuantizer.POSITION_MIN - 1e-9));
+        assertEquals(Entity.STATE_OTHER, quantizer.getEncoding(Entity.STATE_POSITION, StateQuantizer.POSITION_MAX + 1e-9));
+        assertEquals(Entity.STATE_OTHER, quantizer.getEncoding(Entity.STATE_VELOCITY, -StateQuantizer.VELOCITY_LIMIT - 1e-9));
+        assertEquals(Entity.STATE_OTHER, quantizer.getEncoding(Entity.STATE_VELOCITY, StateQuantizer.VELOCITY_LIMIT + 1e-9));
+        assertEquals(Entity.STATE_OTHER, quantizer.getEncoding(Entity.STATE_VELOCITY, Double.NaN));
+        assertEquals(Entity.STATE_OTHER, quantizer.getEncoding(Entity.STATE_DIRECTION, 2));
+        assertEquals(Entity.STATE_OTHER, quantizer.getEncoding(Entity.STATE_OTHER, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> quantizer.getBits(Entity.STATE_OTHER));
+
+        // Rounding leaves the fallback values untouched
+        double[] state = {StateQuantizer.POSITION_MAX + 0.123456789, -StateQuantizer.VELOCITY_LIMIT - 7.654321, 0.5};
+        int[] fieldKinds = {Entity.STATE_POSITION, Entity.STATE_VELOCITY, Entity.STATE_OTHER};
+        double[] rounded = state.clone();
+        quantizer.round(rounded, fieldKinds);
+        for (int i = 0; i < state.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(state[i]), Double.doubleToRawLongBits(rounded[i]));
+        }
+    }
+
+    @Test
+    public void rejectsUnsupportedBitWidths() {
+        assertThrows(IllegalArgumentException.class, () -> new StateQuantizer(0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new StateQuantizer(16, 33));
+    }
+
+    /**
+     * Helper method to check that a value survives quantization and the bit stream within the error bound
+     */
+    private static void assertRoundTrip(StateQuantizer quantizer, int kind, double value, int bits, double maxError) {
+        int encoding = quantizer.getEncoding(kind, value);
+        assertEquals(kind, encoding);
+        assertEquals(bits, quantizer.getBits(encoding));
+        long quantized = quantizer.quantize(encoding, value);
+        assertTrue(quantized >= 0 && quantized < (1L << bits), "quantized value does not fit in " + bits + " bits");
+        double received = quantizer.dequantize(encoding, quantized);
+        assertTrue(Math.abs(received - value) <= maxError * (1 + 1e-9),
+                String.format("%s came back as %s with %d bits", value, received, bits));
+    }
+}
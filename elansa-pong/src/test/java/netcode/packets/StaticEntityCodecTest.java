@@ -0,0 +1,54 @@
+package netcode.packets;
+
+import engine.Entity;
+import game.AbstractLocalGame;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StaticEntityCodecTest {
+    @Test
+    public void staticEntitiesOfEveryMapRoundTrip() throws Exception {
+        for (String map : new String[]{"Spin.map", "BouncyBalls.map"}) {
+            AbstractLocalGame game = Serializer.readGameMapFromFile(new File(map));
+            ArrayList<Entity> catalog = game.getStaticEntityCatalog();
+            byte[] encoded = Serializer.getStaticEntityBytes(catalog);
+            // Clients cache maps by the hash of these bytes so the encoding must not change between runs
+            assertArrayEquals(encoded, Serializer.getStaticEntityBytes(Serializer.readGameMapFromFile(new File(map)).getStaticEntityCatalog()));
+
+            ArrayList<Entity> decoded = Serializer.readStaticEntities(encoded);
+            assertEquals(catalog.size(), decoded.size(), map);
+            for (int i = 0; i < catalog.size(); i++) {
+                Entity expected = catalog.get(i);
+                Entity actual = decoded.get(i);
+                assertEquals(expected.getClass(), actual.getClass());
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getName(), actual.getName());
+                assertArrayEquals(getState(expected), getState(actual), expected.getName());
+            }
+        }
+    }
+
+    @Test
+    public void truncatedBytesAreRejected() throws Exception {
+        AbstractLocalGame game = Serializer.readGameMapFromFile(new File("Spin.map"));
+        byte[] encoded = Serializer.getStaticEntityBytes(game.getStaticEntityCatalog());
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> Serializer.readStaticEntities(truncated));
+    }
+
+    /**
+     * Helper method to get an entity's mutable state
+     */
+    private static double[] getState(Entity entity) {
+        double[] state = new double[entity.getStateSize()];
+        entity.writeState(state, 0);
+        return state;
+    }
+}
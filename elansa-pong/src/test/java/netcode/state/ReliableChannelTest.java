@@ -0,0 +1,97 @@
+package netcode.state;
+
+import game.GameSettings;
+import netcode.packets.GameOver;
+import netcode.packets.MapChunk;
+import netcode.packets.Packet;
+import netcode.packets.ReliableBatch;
+import netcode.packets.Serializer;
+import netcode.packets.Superseded;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReliableChannelTest {
+    @Test
+    public void largeMessagesAreSplitIntoDatagramsAndJoined() {
+        byte[] data = new byte[30000];
+        new Random(7).nextBytes(data);
+        ReliableSender sender = new ReliableSender(null);
+        sender.send(new MapChunk(0, 1, data));
+        sender.send(new GameOver("done"));
+        assertTrue(sender.getPendingCount() > 2);
+
+        ArrayList<ReliableBatch> batches = sender.collectDueBatches(0);
+        for (ReliableBatch batch : batches) {
+            assertTrue(Serializer.getBytes(batch).length <= GameSettings.MAX_DATAGRAM_BYTES);
+        }
+        // Pieces are held back until the missing ones arrive
+        Collections.shuffle(batches, new Random(3));
+
+        ReliableReceiver receiver = new ReliableReceiver();
+        ArrayList<Packet> delivered = new ArrayList<>();
+        for (ReliableBatch batch : batches) {
+            delivered.addAll(receiver.receive(batch));
+        }
+        assertEquals(2, delivered.size());
+        assertArrayEquals(data, ((MapChunk) delivered.get(0)).getData());
+        assertEquals("done", ((GameOver) delivered.get(1)).getMessage());
+        assertEquals(sender.getPendingCount() - 1, receiver.getDeliveredSequenceNumber());
+    }
+
+    @Test
+    public void piecesOfASupersededMessageAreDropped() {
+        ReliableSender sender = new ReliableSender(null);
+        sender.send(new MapChunk(0, 1, new byte[5000]));
+        int pieceCount = sender.getPendingCount();
+        sender.send(new GameOver("done"));
+
+        // The first piece was replaced while the others were already on their way
+        ArrayList<Integer> sequenceNumbers = new ArrayList<>();
+        ArrayList<byte[]> messages = new ArrayList<>();
+        for (ReliableBatch batch : sender.collectDueBatches(0)) {
+            for (int i = 0; i < batch.getSequenceNumbers().length; i++) {
+                sequenceNumbers.add(batch.getSequenceNumbers()[i]);
+                messages.add(batch.getEncodedMessages()[i]);
+            }
+        }
+        messages.set(0, Serializer.getBytes(new Superseded()));
+
+        ReliableReceiver receiver = new ReliableReceiver();
+        ArrayList<Packet> delivered = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            delivered.addAll(receiver.receive(new ReliableBatch(new int[]{sequenceNumbers.get(i)}, new byte[][]{messages.get(i)})));
+        }
+        assertEquals(pieceCount + 1, messages.size());
+        assertEquals(2, delivered.size());
+        assertTrue(delivered.get(0) instanceof Superseded);
+        assertEquals("done", ((GameOver) delivered.get(1)).getMessage());
+    }
+
+    @Test
+    public void closedReceiversDropBatches() {
+        ReliableSender sender = new ReliableSender(null);
+        sender.send(new GameOver("done"));
+        ReliableReceiver receiver = new ReliableReceiver();
+        receiver.close();
+        // Closing twice must not end the compressor twice
+        receiver.close();
+        for (ReliableBatch batch : sender.collectDueBatches(0)) {
+            assertTrue(receiver.receive(batch).isEmpty());
+        }
+        assertEquals(-1, receiver.getDeliveredSequenceNumber());
+    }
+
+    @Test
+    public void batchesRejectMessagesTooLongForTheirLength() {
+        ReliableBatch batch = new ReliableBatch(new int[]{0}, new byte[][]{new byte[0x10000]});
+        assertThrows(IllegalArgumentException.class, () -> Serializer.getBytes(batch));
+    }
+}